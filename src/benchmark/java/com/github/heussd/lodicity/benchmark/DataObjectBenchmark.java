@@ -0,0 +1,109 @@
+package com.github.heussd.lodicity.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.Schema;
+import com.github.heussd.lodicity.model.ValidationPolicy;
+
+/**
+ * Field access on a single {@link DataObject}, per {@link ValidationPolicy}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataObjectBenchmark {
+
+	@Param({ "NONE", "ON_WRITE", "FULL" })
+	public ValidationPolicy validationPolicy;
+
+	private DataObject dataObject;
+	private List<String> stringList;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Schema.setValidationPolicy(DataObject.class, validationPolicy);
+
+		stringList = new ArrayList<>(Arrays.asList("Hello", "World"));
+		dataObject = new DataObject();
+		dataObject.put("string", "Hello World");
+		dataObject.put("float", 1F);
+		dataObject.put("url", "http://www.example.com");
+		dataObject.put("client", "ULB");
+		dataObject.put("stringList", stringList);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Schema.setValidationPolicy(DataObject.class, ValidationPolicy.ON_WRITE);
+	}
+
+	@Benchmark
+	public Object putString() {
+		return dataObject.put("string", "Hello World");
+	}
+
+	@Benchmark
+	public Object putUrl() {
+		return dataObject.put("url", "http://www.example.com");
+	}
+
+	@Benchmark
+	public Object putEnum() {
+		return dataObject.put("client", "ULB");
+	}
+
+	@Benchmark
+	public Object putList() {
+		return dataObject.put("stringList", stringList);
+	}
+
+	@Benchmark
+	public Object putWithoutValidation() {
+		return dataObject.put("string", "Hello World", false);
+	}
+
+	@Benchmark
+	public Object getString() {
+		return dataObject.<String> get("string");
+	}
+
+	@Benchmark
+	public Object getList() {
+		return dataObject.<List<String>> get("stringList");
+	}
+
+	@Benchmark
+	public Object getWithoutValidation() {
+		return dataObject.<String> getWithoutValidation("string");
+	}
+
+	@Benchmark
+	public DataObject newDataObject() {
+		DataObject dataObject = new DataObject();
+		dataObject.put("string", "Hello World");
+		dataObject.put("float", 1F);
+		dataObject.put("stringList", stringList);
+		return dataObject;
+	}
+}
@@ -0,0 +1,65 @@
+package com.github.heussd.lodicity.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.heussd.lodicity.model.DataObject;
+
+/**
+ * Memory footprint of a {@link DataObject} compared to a {@link HashMap} with the same attributes. Run with the GC profiler, e.g.
+ * <code>-Djmh.args="FootprintBenchmark -prof gc"</code>, and compare <code>gc.alloc.rate.norm</code>, the bytes allocated per object. The values are shared, so only the
+ * maps themselves are counted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FootprintBenchmark {
+
+	private String string;
+	private Float floatValue;
+	private List<String> stringList;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		string = "Hello World";
+		floatValue = 1F;
+		stringList = new ArrayList<>(Arrays.asList("Hello", "World"));
+	}
+
+	@Benchmark
+	public DataObject dataObject() {
+		DataObject dataObject = new DataObject();
+		dataObject.put("string", string);
+		dataObject.put("float", floatValue);
+		dataObject.put("stringList", stringList);
+		return dataObject;
+	}
+
+	@Benchmark
+	public Map<String, Object> hashMap() {
+		Map<String, Object> hashMap = new HashMap<>();
+		hashMap.put("string", string);
+		hashMap.put("float", floatValue);
+		hashMap.put("stringList", stringList);
+		return hashMap;
+	}
+}
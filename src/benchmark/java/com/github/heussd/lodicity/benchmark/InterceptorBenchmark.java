@@ -0,0 +1,83 @@
+package com.github.heussd.lodicity.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.heussd.lodicity.model.AttributeDescriptor;
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.ListCodec;
+import com.github.heussd.lodicity.model.Schema;
+import com.github.heussd.lodicity.store.DataObjectInterceptor;
+
+/**
+ * Embedding of lists and nested {@link DataObject}s by the {@link DataObjectInterceptor} on save, and decoding lists back on first access.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InterceptorBenchmark {
+
+	@Param({ "JSON", "BINARY" })
+	public String listCodec;
+
+	@Param({ "2", "100" })
+	public int listSize;
+
+	private DataObjectInterceptor interceptor;
+	private DataObject dataObject;
+	private String[] propertyNames;
+	private Object[] state;
+	private Object encodedList;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ListCodec codec = listCodec.equals("BINARY") ? ListCodec.BINARY : ListCodec.JSON;
+		interceptor = new DataObjectInterceptor();
+		interceptor.setListCodec(codec);
+
+		List<String> stringList = new ArrayList<>();
+		for (int i = 0; i < listSize; i++)
+			stringList.add("Element number " + i);
+
+		dataObject = new DataObject();
+		dataObject.put("string", "Hello World");
+		dataObject.put("stringList", stringList);
+
+		List<AttributeDescriptor> attributes = Schema.getTypeDescriptor(DataObject.class).getAttributes();
+		propertyNames = new String[attributes.size()];
+		state = new Object[attributes.size()];
+		for (int i = 0; i < attributes.size(); i++) {
+			propertyNames[i] = attributes.get(i).getName();
+			state[i] = dataObject.get((Object) propertyNames[i]);
+		}
+		encodedList = codec.encode(stringList);
+	}
+
+	@Benchmark
+	public boolean onSave() {
+		// The interceptor replaces the lists in the state it is given
+		return interceptor.onSave(dataObject, null, state.clone(), propertyNames, null);
+	}
+
+	@Benchmark
+	public Object decodeList() {
+		return ListCodec.decodeColumn(encodedList);
+	}
+}
@@ -0,0 +1,92 @@
+package com.github.heussd.lodicity.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.store.Filter;
+import com.github.heussd.lodicity.store.ScrollableDataObjectIterable;
+import com.github.heussd.lodicity.store.Warehouse;
+
+/**
+ * Reading from a database of the given size: hydration through {@link Warehouse#all(Class)}, {@link Warehouse#query(Filter...)} and
+ * {@link Warehouse#scroll(Class)}, and {@link Warehouse#count(Filter...)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class QueryBenchmark {
+
+	@Param({ "1000", "100000" })
+	public int rows;
+
+	private Warehouse warehouse;
+	private Filter stringFilter;
+	private Filter listFilter;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Warehouse loader = new Warehouse(true, DataObject.class);
+		loader.bulkInsert(DataObject.class, IntStream.range(0, rows).mapToObj(WarehouseBenchmark::makeDataObject));
+		loader.close();
+
+		// A new session, so nothing comes from the first-level cache
+		warehouse = new Warehouse(false, DataObject.class);
+		Filter filter = new Filter(DataObject.class);
+		stringFilter = filter.eq("string", "Hello World " + (rows / 2));
+		listFilter = filter.eq("stringList", String.valueOf(rows / 2));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		warehouse.close();
+	}
+
+	@Benchmark
+	public void all(Blackhole blackhole) {
+		for (DataObject dataObject : warehouse.all(DataObject.class))
+			blackhole.consume(dataObject.<String> get("string"));
+	}
+
+	@Benchmark
+	public void scroll(Blackhole blackhole) {
+		try (ScrollableDataObjectIterable dataObjects = warehouse.scroll(DataObject.class)) {
+			for (DataObject dataObject : dataObjects)
+				blackhole.consume(dataObject.<String> get("string"));
+		}
+	}
+
+	@Benchmark
+	public void query(Blackhole blackhole) {
+		for (DataObject dataObject : warehouse.query(stringFilter))
+			blackhole.consume(dataObject);
+	}
+
+	@Benchmark
+	public Long count() {
+		return warehouse.count(DataObject.class);
+	}
+
+	@Benchmark
+	public Long countList() {
+		return warehouse.count(listFilter);
+	}
+}
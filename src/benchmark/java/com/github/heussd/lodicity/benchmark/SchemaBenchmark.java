@@ -0,0 +1,58 @@
+package com.github.heussd.lodicity.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.Schema;
+
+/**
+ * {@link Schema#isValid(DataObject, String, Object)} per datatype, with values as they typically come in from loaders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SchemaBenchmark {
+
+	/**
+	 * attribute=value
+	 */
+	@Param({ "string=Hello World", "float=3.1415", "integer=42", "boolean=true", "url=http://www.example.com", "client=ULB" })
+	public String attributeValue;
+
+	private DataObject dataObject;
+	private String attribute;
+	private String value;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dataObject = new DataObject();
+		attribute = attributeValue.substring(0, attributeValue.indexOf('='));
+		value = attributeValue.substring(attributeValue.indexOf('=') + 1);
+	}
+
+	@Benchmark
+	public boolean isValid() {
+		return Schema.isValid(dataObject, attribute, value);
+	}
+
+	@Benchmark
+	public Object getAttribute() {
+		return Schema.getAttribute(dataObject, attribute);
+	}
+}
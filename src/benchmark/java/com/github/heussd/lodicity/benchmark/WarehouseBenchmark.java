@@ -0,0 +1,74 @@
+package com.github.heussd.lodicity.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.store.Warehouse;
+
+/**
+ * Persisting batches of {@link DataObject}s into a fresh database. Each measurement is a single persist call, so results are reported per batch.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class WarehouseBenchmark {
+
+	@Param({ "1", "100", "10000", "100000" })
+	public int batchSize;
+
+	private Warehouse warehouse;
+	private List<DataObject> dataObjects;
+
+	static DataObject makeDataObject(int i) {
+		DataObject dataObject = new DataObject();
+		dataObject.put("string", "Hello World " + i);
+		dataObject.put("float", (float) i);
+		dataObject.put("integer", i);
+		dataObject.put("client", i % 2 == 0 ? "ULB" : "Staedel");
+		dataObject.put("stringList", new ArrayList<>(Arrays.asList("Hello", "World", String.valueOf(i))));
+		return dataObject;
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		warehouse = new Warehouse(true, DataObject.class);
+		dataObjects = new ArrayList<>(batchSize);
+		for (int i = 0; i < batchSize; i++)
+			dataObjects.add(makeDataObject(i));
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		warehouse.close();
+	}
+
+	@Benchmark
+	public void persist() {
+		warehouse.persist(dataObjects);
+	}
+
+	@Benchmark
+	public long bulkInsert() {
+		return warehouse.bulkInsert(DataObject.class, dataObjects.stream());
+	}
+}
@@ -1,10 +1,12 @@
 package com.github.heussd.lodicity.data;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 import org.json.JSONArray;
@@ -19,41 +21,77 @@ public class CKANDataSource extends DownloadableDataSource {
 		super(url);
 	}
 
+	/**
+	 * Derives the token from the dataset's <code>metadata_modified</code> and the hash and modification date of each resource, so no resource has to be requested.
+	 */
 	@Override
-	public List<File> getLocalFiles() {
+	public String getCurrentnessToken() {
 		try {
-			String dataPortal = (url.getHost()).toString();
-			String datasetId = (new File(url.getFile()).getName()).toString();
-
-			// http://datahub.io/api/3/action/package_show?id=adur_district_spending
-			LOGGER.info("Constructing CKAN API Version 3 Query for \"{}\"", dataPortal);
-			URL ckanRequest = new URL("https://" + dataPortal + "/api/3/action/package_show?id=" + datasetId);
-
-			LOGGER.info("Requesting CKAN meta data for \"{}\"", datasetId);
-			Scanner scanner = new Scanner(ckanRequest.openStream());
-			String response = scanner.useDelimiter("\\Z").next();
-
-			JSONObject json = new JSONObject(response);
-			scanner.close();
-			LOGGER.info("Parsing response...");
-
-			if (!json.get("success").toString().equals("true"))
-				throw new RuntimeException("Response indicated unsuccessful operation");
+			JSONObject dataset = packageShow();
+			StringBuilder token = new StringBuilder(dataset.optString("metadata_modified"));
+			JSONArray resources = dataset.getJSONArray("resources");
+			for (int i = 0; i < resources.length(); i++) {
+				JSONObject resource = resources.getJSONObject(i);
+				token.append('|').append(resource.optString("id")).append('=').append(resource.optString("hash")).append('@')
+						.append(resource.optString("last_modified"));
+			}
+			return token.toString();
+		} catch (Exception e) {
+			throw new RuntimeException("Cannot determine currentness of \"" + url + "\"", e);
+		}
+	}
 
-			ArrayList<File> files = new ArrayList<>();
-			JSONArray resources = (JSONArray) (((JSONObject) json.get("result")).get("resources"));
+	@Override
+	public List<File> getLocalFiles() {
+		try {
+			Map<String, URL> urls = new LinkedHashMap<>();
+			JSONArray resources = packageShow().getJSONArray("resources");
 			for (int i = 0; i < resources.length(); i++) {
 				JSONObject resource = (JSONObject) resources.get(i);
 				LOGGER.info("Retrieving {} resource {}", resource.get("format"), resource.get("url"));
-
-				File file = new File((String) resource.get("id"));
-				download(new URL((String) resource.get("url")), file);
-				files.add(file);
+				URL resourceUrl = new URL((String) resource.get("url"));
+				urls.put(cacheKey(resource, resourceUrl), resourceUrl);
 			}
+
+			List<File> files = downloader().downloadAll(urls);
 			return files;
 		} catch (Exception e) {
 			throw new RuntimeException("Cannot retrieve files from \"" + url + "\"", e);
 		}
 	}
 
+	/**
+	 * The resource id, with the file extension of its URL or else its format, so that a {@link RecordReader} can be chosen for the cached file.
+	 */
+	private static String cacheKey(JSONObject resource, URL resourceUrl) {
+		String name = resourceUrl.getPath().substring(resourceUrl.getPath().lastIndexOf('/') + 1);
+		String extension = name.contains(".") ? name.substring(name.lastIndexOf('.') + 1) : resource.optString("format");
+		return extension.isEmpty() ? (String) resource.get("id") : resource.get("id") + "." + extension.toLowerCase();
+	}
+
+	/**
+	 * Requests the dataset description from the CKAN API and returns its <code>result</code>.
+	 */
+	private JSONObject packageShow() throws IOException {
+		String dataPortal = (url.getHost()).toString();
+		String datasetId = (new File(url.getFile()).getName()).toString();
+
+		// http://datahub.io/api/3/action/package_show?id=adur_district_spending
+		LOGGER.info("Constructing CKAN API Version 3 Query for \"{}\"", dataPortal);
+		URL ckanRequest = new URL(url.getProtocol() + "://" + url.getAuthority() + "/api/3/action/package_show?id=" + datasetId);
+
+		LOGGER.info("Requesting CKAN meta data for \"{}\"", datasetId);
+		Scanner scanner = new Scanner(ckanRequest.openStream(), "UTF-8");
+		String response = scanner.useDelimiter("\\Z").next();
+
+		JSONObject json = new JSONObject(response);
+		scanner.close();
+		LOGGER.info("Parsing response...");
+
+		if (!json.get("success").toString().equals("true"))
+			throw new RuntimeException("Response indicated unsuccessful operation");
+
+		return (JSONObject) json.get("result");
+	}
+
 }
@@ -0,0 +1,119 @@
+package com.github.heussd.lodicity.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Delimiter-separated values read through a file channel. Fields may be enclosed in double quotes, which allows delimiters, line breaks and doubled quotes inside.
+ */
+class CsvRecordReader implements RecordReader {
+
+	private final char delimiter;
+
+	CsvRecordReader(char delimiter) {
+		this.delimiter = delimiter;
+	}
+
+	@Override
+	public Stream<Map<String, Object>> read(File file) {
+		try {
+			Reader reader = new BufferedReader(Channels.newReader(FileChannel.open(file.toPath(), StandardOpenOption.READ), StandardCharsets.UTF_8.newDecoder(), 64 * 1024));
+			return new Records(reader).stream();
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot open \"" + file + "\"", e);
+		}
+	}
+
+	private class Records extends RecordIterator<Map<String, Object>> {
+		private final Reader reader;
+		private final StringBuilder field = new StringBuilder();
+		private List<String> header;
+
+		Records(Reader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		protected Map<String, Object> readNext() throws IOException {
+			if (header == null) {
+				header = readLine();
+				if (header == null)
+					return null;
+				// Byte order mark written by some spreadsheet applications
+				if (!header.isEmpty() && header.get(0).startsWith("\uFEFF"))
+					header.set(0, header.get(0).substring(1));
+			}
+
+			List<String> values;
+			do {
+				values = readLine();
+				if (values == null)
+					return null;
+			} while (values.size() == 1 && values.get(0).isEmpty());
+
+			Map<String, Object> record = new LinkedHashMap<>();
+			for (int i = 0; i < header.size() && i < values.size(); i++) {
+				record.put(header.get(i), values.get(i));
+			}
+			return record;
+		}
+
+		/**
+		 * @return The fields of the next line or <code>null</code> at the end of input
+		 */
+		private List<String> readLine() throws IOException {
+			int c = reader.read();
+			if (c == -1)
+				return null;
+
+			List<String> values = new ArrayList<>();
+			boolean quoted = false;
+			field.setLength(0);
+			while (true) {
+				if (quoted) {
+					if (c == -1)
+						throw new IOException("Unterminated quoted field");
+					if (c == '"') {
+						reader.mark(1);
+						if (reader.read() == '"') {
+							field.append('"');
+						} else {
+							reader.reset();
+							quoted = false;
+						}
+					} else {
+						field.append((char) c);
+					}
+				} else if (c == '"' && field.length() == 0) {
+					quoted = true;
+				} else if (c == delimiter) {
+					values.add(field.toString());
+					field.setLength(0);
+				} else if (c == '\n' || c == -1) {
+					break;
+				} else if (c != '\r') {
+					field.append((char) c);
+				}
+				c = reader.read();
+			}
+			values.add(field.toString());
+			return values;
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
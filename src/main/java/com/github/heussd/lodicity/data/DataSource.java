@@ -1,8 +1,23 @@
 package com.github.heussd.lodicity.data;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Random;
+import java.util.stream.Stream;
+
+import com.github.heussd.lodicity.model.AttributeDescriptor;
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.DataType;
+import com.github.heussd.lodicity.model.ListCodec;
+import com.github.heussd.lodicity.model.Schema;
+import com.github.heussd.lodicity.model.TypeDescriptor;
 
 public abstract class DataSource {
 
@@ -19,8 +34,91 @@ public abstract class DataSource {
 	public abstract String getIdentifer();
 
 	public abstract List<File> getLocalFiles();
-	
-	
+
+	/**
+	 * Streams the records of all local files, one file after another, as {@link DataObject}s of the given type. The {@link RecordReader} is chosen by file extension. Columns
+	 * are matched to attributes by name and converted to their {@link DataType}, columns unknown to the {@link Schema} are skipped. With the default
+	 * {@link com.github.heussd.lodicity.model.ValidationPolicy}, a value that is not of its datatype fails the record. Records are read on demand, so the
+	 * stream must be closed.
+	 */
+	public <T extends DataObject> Stream<T> records(Class<T> dataObjectClass) {
+		TypeDescriptor typeDescriptor = Schema.getTypeDescriptor(dataObjectClass);
+		Iterator<File> files = getLocalFiles().iterator();
+
+		RecordIterator<Map<String, Object>> records = new RecordIterator<Map<String, Object>>() {
+			private Stream<Map<String, Object>> current;
+			private Iterator<Map<String, Object>> iterator;
+
+			@Override
+			protected Map<String, Object> readNext() throws IOException {
+				while (iterator == null || !iterator.hasNext()) {
+					close();
+					if (!files.hasNext())
+						return null;
+
+					File file = files.next();
+					current = RecordReader.forFile(file).read(file);
+					iterator = current.iterator();
+				}
+				return iterator.next();
+			}
+
+			@Override
+			public void close() {
+				if (current != null)
+					current.close();
+				current = null;
+				iterator = null;
+			}
+		};
+		return records.stream().map(record -> toDataObject(dataObjectClass, typeDescriptor, record));
+	}
+
+	private static <T extends DataObject> T toDataObject(Class<T> dataObjectClass, TypeDescriptor typeDescriptor, Map<String, Object> record) {
+		T dataObject;
+		try {
+			dataObject = dataObjectClass.newInstance();
+		} catch (Exception e) {
+			throw new RuntimeException(dataObjectClass.getSimpleName() + " must specify a public default constructor", e);
+		}
+
+		for (Entry<String, Object> entry : record.entrySet()) {
+			AttributeDescriptor attributeDescriptor = typeDescriptor.getAttribute(entry.getKey());
+			if (attributeDescriptor == null)
+				continue;
+
+			Object value = entry.getValue();
+			if (value == null || "".equals(value))
+				continue;
+
+			if (attributeDescriptor.isListType()) {
+				// Lists are given as arrays (JSON) or as JSON text (CSV, XLSX), anything else is taken as single element
+				Collection<?> elements = value instanceof Collection ? (Collection<?>) value
+						: value.toString().startsWith("[") ? ListCodec.JSON.decode(value.toString()) : Arrays.asList(value);
+				List<Object> list = new ArrayList<>(elements.size());
+				for (Object element : elements)
+					list.add(element == null ? null : convert(attributeDescriptor, element));
+				value = list;
+			} else {
+				value = convert(attributeDescriptor, value);
+			}
+			dataObject.put(attributeDescriptor.getName(), value);
+		}
+		return dataObject;
+	}
+
+	/**
+	 * Values that do not convert without loss, e.g. <code>2.7</code> or <code>yes</code> for an Integer or Boolean, are kept as given, so validation rejects them instead of
+	 * a different value being stored.
+	 */
+	private static Object convert(AttributeDescriptor attributeDescriptor, Object value) {
+		try {
+			return attributeDescriptor.getDataType().convert(value);
+		} catch (IllegalArgumentException e) {
+			return value;
+		}
+	}
+
 	public String toString() {
 		return this.getClass().getSimpleName();
 	}
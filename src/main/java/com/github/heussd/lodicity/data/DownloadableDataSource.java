@@ -1,22 +1,26 @@
 package com.github.heussd.lodicity.data;
 
 import java.io.File;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.axet.wget.WGet;
-import com.github.axet.wget.info.DownloadInfo;
-
 public class DownloadableDataSource extends DataSource {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DownloadableDataSource.class);
 
 	protected URL url;
 
+	private File cacheDirectory = new File(".");
+
+	private int parallelism = 4;
+
 	public DownloadableDataSource(URL url) {
 		this.url = url;
 	}
@@ -30,19 +34,83 @@ public class DownloadableDataSource extends DataSource {
 		return url.toString();
 	}
 
+	/**
+	 * Builds the token from the ETag, Last-Modified and Content-Length of a HEAD request, so checking a source does not transfer it. Falls back to a token that always
+	 * triggers a load if the server provides none of them.
+	 */
+	@Override
+	public String getCurrentnessToken() {
+		try {
+			URLConnection connection = url.openConnection();
+			if (connection instanceof HttpURLConnection)
+				((HttpURLConnection) connection).setRequestMethod("HEAD");
+
+			try {
+				if (connection instanceof HttpURLConnection && ((HttpURLConnection) connection).getResponseCode() >= 400) {
+					LOGGER.warn("HEAD request for {} failed with {}, assuming it has changed", url, ((HttpURLConnection) connection).getResponseCode());
+					return super.getCurrentnessToken();
+				}
+
+				List<String> token = new ArrayList<>();
+				if (connection.getHeaderField("ETag") != null)
+					token.add("etag=" + connection.getHeaderField("ETag"));
+				if (connection.getLastModified() > 0)
+					token.add("lastModified=" + connection.getLastModified());
+				if (connection.getContentLengthLong() >= 0)
+					token.add("length=" + connection.getContentLengthLong());
+
+				if (token.isEmpty()) {
+					LOGGER.warn("{} provides no validators, assuming it has changed", url);
+					return super.getCurrentnessToken();
+				}
+				return String.join(",", token);
+			} finally {
+				if (connection instanceof HttpURLConnection)
+					((HttpURLConnection) connection).disconnect();
+				else
+					connection.getInputStream().close();
+			}
+		} catch (Exception e) {
+			throw new RuntimeException("Cannot determine currentness of \"" + url + "\"", e);
+		}
+	}
+
+	/**
+	 * Sets the directory downloaded files are cached in, the working directory by default.
+	 */
+	public void setCacheDirectory(File cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	/**
+	 * Sets the maximum number of concurrent downloads.
+	 */
+	public void setParallelism(int parallelism) {
+		assert parallelism > 0 : "Parallelism must be positive";
+		this.parallelism = parallelism;
+	}
+
 	@Override
 	public List<File> getLocalFiles() {
 		LOGGER.info("Downloading {}", url);
-		File file = new File(new File(url.getFile()).getName());
-		download(url, file);
-		return Arrays.asList(new File[] { file });
+		try {
+			return Arrays.asList(new File[] { downloader().download(new File(url.getFile()).getName(), url) });
+		} catch (Exception e) {
+			throw new RuntimeException("Cannot download \"" + url + "\"", e);
+		}
+	}
+
+	protected Downloader downloader() {
+		return new Downloader(cacheDirectory, parallelism);
 	}
 
 	protected void download(URL url, File file) {
-		DownloadInfo info = new DownloadInfo(url);
-		info.extract();
-		WGet wGet = new WGet(info, file);
-		wGet.download();
+		try {
+			File directory = file.getAbsoluteFile().getParentFile();
+			new Downloader(directory, 1).download(file.getName(), url);
+		} catch (Exception e) {
+			throw new RuntimeException("Cannot download \"" + url + "\"", e);
+		}
 	}
 
 }
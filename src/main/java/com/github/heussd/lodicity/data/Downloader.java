@@ -0,0 +1,212 @@
+package com.github.heussd.lodicity.data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads files into a local cache directory. Each file is stored under its key, next to a <code>.meta</code> file with the ETag and Last-Modified validators of the
+ * download. Unchanged files are not transferred again, interrupted downloads are kept as <code>.part</code> file and resumed with a range request.
+ */
+public class Downloader {
+	private static final Logger LOGGER = LoggerFactory.getLogger(Downloader.class);
+
+	private static final String ETAG = "etag";
+	private static final String LAST_MODIFIED = "lastModified";
+	private static final String SOURCE = "url";
+	private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-\\d+/(\\d+|\\*)");
+
+	private final File directory;
+	private final int parallelism;
+	private int timeout = 30000;
+
+	public Downloader(File directory, int parallelism) {
+		assert parallelism > 0 : "Parallelism must be positive";
+		this.directory = directory;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Sets the connect and read timeout in milliseconds.
+	 */
+	public void setTimeout(int timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Downloads all given URLs, at most {@link #parallelism} at a time.
+	 *
+	 * @param urls
+	 *            URLs by cache key, e.g. a resource id
+	 * @return Local files in the order of the given map
+	 */
+	public List<File> downloadAll(Map<String, URL> urls) {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, urls.size())));
+		try {
+			Map<String, Future<File>> futures = new LinkedHashMap<>();
+			for (Entry<String, URL> entry : urls.entrySet()) {
+				futures.put(entry.getKey(), executor.submit(() -> download(entry.getKey(), entry.getValue())));
+			}
+
+			List<File> files = new ArrayList<>(futures.size());
+			for (Entry<String, Future<File>> future : futures.entrySet()) {
+				try {
+					files.add(future.getValue().get());
+				} catch (ExecutionException e) {
+					throw new RuntimeException("Cannot download \"" + urls.get(future.getKey()) + "\"", e.getCause());
+				}
+			}
+			return files;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Download interrupted", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Downloads the given URL into the cache file of the given key, unless the cached file is still current.
+	 */
+	public File download(String key, URL url) throws IOException {
+		String name = key.replaceAll("[^A-Za-z0-9._-]", "_");
+		File file = new File(directory, name);
+		File part = new File(directory, name + ".part");
+		File metaFile = new File(directory, name + ".meta");
+
+		if (!directory.exists() && !directory.mkdirs())
+			throw new IOException("Cannot create cache directory " + directory);
+
+		Properties meta = readMeta(metaFile);
+		boolean sameUrl = url.toString().equals(meta.getProperty(SOURCE));
+
+		URLConnection connection = url.openConnection();
+		connection.setConnectTimeout(timeout);
+		connection.setReadTimeout(timeout);
+		if (!(connection instanceof HttpURLConnection)) {
+			copy(connection.getInputStream(), part, false);
+			return complete(part, file, metaFile, url, null, null);
+		}
+
+		HttpURLConnection http = (HttpURLConnection) connection;
+		if (sameUrl && file.exists()) {
+			setIfPresent(http, "If-None-Match", meta.getProperty(ETAG));
+			setIfPresent(http, "If-Modified-Since", meta.getProperty(LAST_MODIFIED));
+		}
+
+		// The partial file belongs to the version described by the meta file, If-Range makes the server send everything if that version is gone
+		long resumeAt = sameUrl && part.exists() ? part.length() : 0;
+		String validator = meta.getProperty(ETAG, meta.getProperty(LAST_MODIFIED));
+		if (resumeAt > 0 && validator != null) {
+			http.setRequestProperty("Range", "bytes=" + resumeAt + "-");
+			http.setRequestProperty("If-Range", validator);
+		}
+
+		try {
+			int status = http.getResponseCode();
+			if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				LOGGER.info("{} is unchanged, using cached {}", url, file);
+				return file;
+			}
+			if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_PARTIAL)
+				throw new IOException("Server responded " + status + " for " + url);
+
+			String etag = http.getHeaderField("ETag");
+			String lastModified = http.getHeaderField("Last-Modified");
+			boolean resume = status == HttpURLConnection.HTTP_PARTIAL;
+			if (!resume)
+				Files.deleteIfExists(file.toPath());
+
+			// Appending anything but the requested range would corrupt the file
+			if (resume && rangeStart(http.getHeaderField("Content-Range")) != resumeAt) {
+				if (resumeAt == 0)
+					throw new IOException("Server sent " + http.getHeaderField("Content-Range") + " instead of the complete " + url);
+				LOGGER.warn("Server sent {} instead of bytes from {} for {}, downloading it again", http.getHeaderField("Content-Range"), resumeAt, url);
+				http.disconnect();
+				Files.delete(part.toPath());
+				return download(key, url);
+			}
+
+			// Remember the validators before the transfer, so an interrupted download can be resumed
+			writeMeta(metaFile, url, etag, lastModified);
+			LOGGER.info("Downloading {} {}", url, resume ? "from byte " + resumeAt : "");
+			copy(http.getInputStream(), part, resume && resumeAt > 0);
+			return complete(part, file, metaFile, url, etag, lastModified);
+		} finally {
+			http.disconnect();
+		}
+	}
+
+	/**
+	 * First byte of a <code>Content-Range</code> like <code>bytes 100-199/200</code>, or -1 if there is none.
+	 */
+	private static long rangeStart(String contentRange) {
+		if (contentRange == null)
+			return -1;
+		Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+		return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+	}
+
+	private File complete(File part, File file, File metaFile, URL url, String etag, String lastModified) throws IOException {
+		Files.move(part.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		writeMeta(metaFile, url, etag, lastModified);
+		return file;
+	}
+
+	private static void copy(InputStream inputStream, File file, boolean append) throws IOException {
+		try (InputStream in = inputStream; OutputStream out = new FileOutputStream(file, append)) {
+			IOUtils.copy(in, out);
+		}
+	}
+
+	private static void setIfPresent(HttpURLConnection connection, String header, String value) {
+		if (value != null)
+			connection.setRequestProperty(header, value);
+	}
+
+	private static Properties readMeta(File metaFile) throws IOException {
+		Properties properties = new Properties();
+		if (metaFile.exists()) {
+			try (InputStream in = new FileInputStream(metaFile)) {
+				properties.load(in);
+			}
+		}
+		return properties;
+	}
+
+	private static void writeMeta(File metaFile, URL url, String etag, String lastModified) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(SOURCE, url.toString());
+		if (etag != null)
+			properties.setProperty(ETAG, etag);
+		if (lastModified != null)
+			properties.setProperty(LAST_MODIFIED, lastModified);
+		try (OutputStream out = new FileOutputStream(metaFile)) {
+			properties.store(out, null);
+		}
+	}
+}
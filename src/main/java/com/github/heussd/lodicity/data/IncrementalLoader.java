@@ -0,0 +1,43 @@
+package com.github.heussd.lodicity.data;
+
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.store.SyncResult;
+import com.github.heussd.lodicity.store.Warehouse;
+
+/**
+ * A {@link Loader} that emits the complete, current set of {@link DataObject}s of one type, each identified by a natural key. Instead of replacing all rows, only the
+ * differences are written, see {@link Warehouse#synchronize}.
+ */
+public abstract class IncrementalLoader extends Loader {
+	private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalLoader.class);
+
+	private final Class<? extends DataObject> dataObjectClass;
+
+	public IncrementalLoader(Class<? extends DataObject> dataObjectClass, DataSource... dataSources) {
+		super(dataSources);
+		this.dataObjectClass = dataObjectClass;
+	}
+
+	/**
+	 * All {@link DataObject}s the data sources currently provide.
+	 */
+	protected abstract Stream<? extends DataObject> dataObjects();
+
+	/**
+	 * Identifies a {@link DataObject} across loads, e.g. by {@link DataObject#generateId(String...)}.
+	 */
+	protected abstract String naturalKey(DataObject dataObject);
+
+	@Override
+	public void loadInto(Warehouse warehouse) {
+		try (Stream<? extends DataObject> dataObjects = dataObjects()) {
+			SyncResult result = warehouse.synchronize(dataObjectClass, dataObjects, this::naturalKey);
+			LOGGER.info("{}: {}", getClass().getSimpleName(), result);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.github.heussd.lodicity.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * One JSON object per line, read through a file channel. Arrays become lists, JSON <code>null</code> becomes <code>null</code>.
+ */
+class JsonLinesRecordReader implements RecordReader {
+
+	@Override
+	public Stream<Map<String, Object>> read(File file) {
+		try {
+			BufferedReader reader = new BufferedReader(
+					Channels.newReader(FileChannel.open(file.toPath(), StandardOpenOption.READ), StandardCharsets.UTF_8.newDecoder(), 64 * 1024));
+
+			return new RecordIterator<Map<String, Object>>() {
+				@Override
+				protected Map<String, Object> readNext() throws IOException {
+					String line;
+					do {
+						line = reader.readLine();
+						if (line == null)
+							return null;
+					} while (line.trim().isEmpty());
+
+					JSONObject json = new JSONObject(line);
+					Map<String, Object> record = new LinkedHashMap<>();
+					for (Object key : json.keySet()) {
+						record.put((String) key, unwrap(json.get((String) key)));
+					}
+					return record;
+				}
+
+				@Override
+				public void close() throws IOException {
+					reader.close();
+				}
+			}.stream();
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot open \"" + file + "\"", e);
+		}
+	}
+
+	private static Object unwrap(Object value) {
+		if (value == JSONObject.NULL)
+			return null;
+
+		if (value instanceof JSONArray) {
+			JSONArray array = (JSONArray) value;
+			List<Object> list = new ArrayList<>(array.length());
+			for (int i = 0; i < array.length(); i++) {
+				list.add(unwrap(array.get(i)));
+			}
+			return list;
+		}
+		return value;
+	}
+}
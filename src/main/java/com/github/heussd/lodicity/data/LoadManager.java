@@ -1,34 +1,40 @@
 package com.github.heussd.lodicity.data;
 
-import java.text.SimpleDateFormat;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.TimeZone;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.heussd.lodicity.store.Warehouse;
 
+/**
+ * Runs registered load chains whose data sources have changed. Currentness tokens of all data sources are determined concurrently. Chains that do not share a data source are
+ * loaded in parallel, chains that do are loaded one after another in the order of registration. All writes go through the {@link Warehouse}, which serializes them.
+ */
 public class LoadManager {
 	private static final Logger LOGGER = LoggerFactory.getLogger(LoadManager.class);
 
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mmZ");
+
 	private LinkedHashMap<ArrayList<DataSource>, ArrayList<Loader>> pipeline = new LinkedHashMap<>();
 
 	private Warehouse warehouse;
 
-	private TimeZone tz;
-
-	private SimpleDateFormat df;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
 
 	public LoadManager(Warehouse warehouse) {
 		this.warehouse = warehouse;
-
-		tz = TimeZone.getTimeZone("UTC");
-		df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mmZ");
-		df.setTimeZone(tz);
 	}
 
 	public void register(Loader... loaders) {
@@ -43,50 +49,133 @@ public class LoadManager {
 		pipeline.put(dataSourceList, loadersList);
 	}
 
+	/**
+	 * Sets the number of threads used to check data sources and to run load chains. Defaults to the number of available processors, 1 loads strictly sequentially.
+	 */
+	public void setParallelism(int parallelism) {
+		assert parallelism > 0 : "Parallelism must be positive";
+		this.parallelism = parallelism;
+	}
+
 	public void loadAll() {
 		LOGGER.info("Load was triggered");
 
-		pipeline.forEach((dataSources, loaders) -> {
-			LOGGER.info("Load chain {}", loaders);
-
-			boolean loadRequired = false;
-
-			if (dataSources.size() != 0) {
-				for (DataSource dataSource : dataSources) {
-					MetaData metaData = warehouse.getMetaData(dataSource.getIdentifer());
-
-					LOGGER.info("DataSource {}, last successful load {}", dataSource, metaData.lastSuccessData);
-					String currentToken = dataSource.getCurrentnessToken();
-					String storedToken = metaData.currentnessToken;
-					LOGGER.debug("Currentness token is {}, stored one is {}", currentToken, storedToken);
-
-					if (!currentToken.equals(storedToken)) {
-						loadRequired = true;
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		try {
+			Map<String, CompletableFuture<String>> currentnessTokens = checkCurrentness(executor);
+
+			List<CompletableFuture<Void>> groups = new ArrayList<>();
+			for (List<Map.Entry<ArrayList<DataSource>, ArrayList<Loader>>> group : independentGroups()) {
+				groups.add(CompletableFuture.runAsync(() -> {
+					try {
+						group.forEach(chain -> load(chain.getKey(), chain.getValue(), currentnessTokens));
+					} finally {
+						// The pool is discarded after this load
+						warehouse.releaseSession();
 					}
+				}, executor));
+			}
+
+			RuntimeException failure = null;
+			for (CompletableFuture<Void> group : groups) {
+				try {
+					group.join();
+				} catch (RuntimeException e) {
+					Throwable cause = e.getCause() != null ? e.getCause() : e;
+					if (failure == null)
+						failure = new RuntimeException("Load failed", cause);
+					else
+						failure.addSuppressed(cause);
 				}
-			} else {
-				LOGGER.warn("No datasources specified, asserting full load is required");
-				loadRequired = true;
 			}
+			if (failure != null)
+				throw failure;
+		} finally {
+			executor.shutdown();
+		}
+	}
 
-			LOGGER.info("Load of this chain is {}required", (loadRequired ? "" : "not "));
-			if (loadRequired) {
-				loaders.forEach(loader -> {
-					LOGGER.info("Instructing {} to load", loader.getClass().getSimpleName());
-					loader.loadInto(warehouse);
-				});
-
-				dataSources.forEach(dataSource -> {
-					LOGGER.info("DataSource {}, succesfully loaded", dataSource);
-
-					MetaData metaData = warehouse.getMetaData(dataSource.getIdentifer());
-					metaData.currentnessToken = dataSource.getCurrentnessToken();
-					metaData.dataSourceIdentifier = dataSource.getIdentifer();
-					metaData.lastSuccessData = df.format(new Date());
-					warehouse.persistMetaData(metaData);
-				});
+	/**
+	 * Requests the currentness tokens of all distinct data sources at once, as determining them may involve remote requests.
+	 */
+	private Map<String, CompletableFuture<String>> checkCurrentness(ExecutorService executor) {
+		Map<String, CompletableFuture<String>> currentnessTokens = new HashMap<>();
+		pipeline.keySet().forEach(dataSources -> dataSources.forEach(dataSource -> currentnessTokens.computeIfAbsent(dataSource.getIdentifer(),
+				identifier -> CompletableFuture.supplyAsync(dataSource::getCurrentnessToken, executor))));
+		return currentnessTokens;
+	}
+
+	/**
+	 * Groups the chains of the pipeline so that chains sharing a data source, directly or through other chains, end up in the same group.
+	 */
+	private List<List<Map.Entry<ArrayList<DataSource>, ArrayList<Loader>>>> independentGroups() {
+		List<Map.Entry<ArrayList<DataSource>, ArrayList<Loader>>> chains = new ArrayList<>(pipeline.entrySet());
+		int[] parent = new int[chains.size()];
+		Map<String, Integer> firstChainOfDataSource = new HashMap<>();
+
+		for (int i = 0; i < chains.size(); i++) {
+			parent[i] = i;
+			for (DataSource dataSource : chains.get(i).getKey()) {
+				Integer other = firstChainOfDataSource.putIfAbsent(dataSource.getIdentifer(), i);
+				if (other != null)
+					parent[root(parent, i)] = root(parent, other);
 			}
-		});
+		}
+
+		Map<Integer, List<Map.Entry<ArrayList<DataSource>, ArrayList<Loader>>>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < chains.size(); i++) {
+			groups.computeIfAbsent(root(parent, i), root -> new ArrayList<>()).add(chains.get(i));
+		}
+		LOGGER.debug("{} load chains form {} independent groups", chains.size(), groups.size());
+		return new ArrayList<>(groups.values());
+	}
+
+	private static int root(int[] parent, int i) {
+		while (parent[i] != i)
+			i = parent[i] = parent[parent[i]];
+		return i;
+	}
 
+	private void load(List<DataSource> dataSources, List<Loader> loaders, Map<String, CompletableFuture<String>> currentnessTokens) {
+		LOGGER.info("Load chain {}", loaders);
+
+		boolean loadRequired = false;
+
+		if (dataSources.size() != 0) {
+			for (DataSource dataSource : dataSources) {
+				MetaData metaData = warehouse.getMetaData(dataSource.getIdentifer());
+
+				LOGGER.info("DataSource {}, last successful load {}", dataSource, metaData.lastSuccessData);
+				String currentToken = currentnessTokens.get(dataSource.getIdentifer()).join();
+				String storedToken = metaData.currentnessToken;
+				LOGGER.debug("Currentness token is {}, stored one is {}", currentToken, storedToken);
+
+				if (!currentToken.equals(storedToken)) {
+					loadRequired = true;
+				}
+			}
+		} else {
+			LOGGER.warn("No datasources specified, asserting full load is required");
+			loadRequired = true;
+		}
+
+		LOGGER.info("Load of this chain is {}required", (loadRequired ? "" : "not "));
+		if (loadRequired) {
+			loaders.forEach(loader -> {
+				LOGGER.info("Instructing {} to load", loader.getClass().getSimpleName());
+				loader.loadInto(warehouse);
+			});
+
+			dataSources.stream().map(DataSource::getIdentifer).distinct().forEach(identifier -> {
+				LOGGER.info("DataSource {}, succesfully loaded", identifier);
+
+				// Store the token that has been checked, the data source may have changed during the load
+				MetaData metaData = warehouse.getMetaData(identifier);
+				metaData.currentnessToken = currentnessTokens.get(identifier).join();
+				metaData.dataSourceIdentifier = identifier;
+				metaData.lastSuccessData = DATE_FORMAT.format(ZonedDateTime.now(ZoneOffset.UTC));
+				warehouse.persistMetaData(metaData);
+			});
+		}
 	}
 }
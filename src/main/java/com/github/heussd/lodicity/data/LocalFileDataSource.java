@@ -4,7 +4,7 @@ import java.io.File;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class LocalFileDataSource extends DataSource {
@@ -34,9 +34,17 @@ public class LocalFileDataSource extends DataSource {
 		}
 	}
 
+	/**
+	 * The file itself, or the files of the directory in name order.
+	 */
 	@Override
 	public List<File> getLocalFiles() {
-		return new ArrayList<>();
+		if (!file.isDirectory())
+			return Arrays.asList(file);
+
+		File[] files = file.listFiles(File::isFile);
+		Arrays.sort(files);
+		return Arrays.asList(files);
 	}
 
 	@Override
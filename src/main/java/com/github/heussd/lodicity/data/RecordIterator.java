@@ -0,0 +1,57 @@
+package com.github.heussd.lodicity.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Pull-based reader of records backed by an open resource. Records are only read when requested, so {@link #stream()} is lazy and closing it releases the resource.
+ */
+abstract class RecordIterator<T> implements Iterator<T>, Closeable {
+
+	private T next;
+	private boolean exhausted = false;
+
+	/**
+	 * @return The next record or <code>null</code> at the end of input
+	 */
+	protected abstract T readNext() throws IOException;
+
+	@Override
+	public boolean hasNext() {
+		if (next == null && !exhausted) {
+			try {
+				next = readNext();
+			} catch (IOException e) {
+				throw new RuntimeException("Cannot read record", e);
+			}
+			exhausted = next == null;
+		}
+		return next != null;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+
+		T record = next;
+		next = null;
+		return record;
+	}
+
+	Stream<T> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() -> {
+			try {
+				close();
+			} catch (IOException e) {
+				throw new RuntimeException("Cannot close record reader", e);
+			}
+		});
+	}
+}
@@ -0,0 +1,61 @@
+package com.github.heussd.lodicity.data;
+
+import java.io.File;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Reads a file record by record, e.g. for {@link DataSource#records(Class)}. Records are maps from column name to value; the first line or row of tabular formats names
+ * the columns.
+ */
+public interface RecordReader {
+
+	/**
+	 * Comma-separated values with optional double quotes, as in RFC 4180.
+	 */
+	RecordReader CSV = new CsvRecordReader(',');
+
+	/**
+	 * Tab-separated values, quoted like {@link #CSV}.
+	 */
+	RecordReader TSV = new CsvRecordReader('\t');
+
+	/**
+	 * One JSON object per line.
+	 */
+	RecordReader JSON_LINES = new JsonLinesRecordReader();
+
+	/**
+	 * The first sheet of an Excel workbook, read without loading the workbook.
+	 */
+	RecordReader XLSX = new XlsxRecordReader();
+
+	/**
+	 * Lazily reads the records of the given file. The stream must be closed to release the file.
+	 */
+	Stream<Map<String, Object>> read(File file);
+
+	/**
+	 * Picks a reader by file extension.
+	 */
+	static RecordReader forFile(File file) {
+		String name = file.getName().toLowerCase();
+		String extension = name.substring(name.lastIndexOf('.') + 1);
+
+		switch (extension) {
+		case "csv":
+			return CSV;
+		case "tsv":
+		case "tab":
+			return TSV;
+		case "jsonl":
+		case "ndjson":
+		case "json":
+			return JSON_LINES;
+		case "xlsx":
+			return XLSX;
+		default:
+			throw new RuntimeException("No record reader for \"" + file + "\"");
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.github.heussd.lodicity.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+
+/**
+ * Reads the first sheet of a workbook straight from its XML, one row at a time, instead of building the POI object model. Only the shared strings table is held in
+ * memory. Cells are returned as their stored text, e.g. numbers unformatted.
+ */
+class XlsxRecordReader implements RecordReader {
+
+	@Override
+	public Stream<Map<String, Object>> read(File file) {
+		OPCPackage opcPackage = null;
+		try {
+			opcPackage = OPCPackage.open(file, PackageAccess.READ);
+			XSSFReader xssfReader = new XSSFReader(opcPackage);
+			ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(opcPackage);
+			InputStream sheet = xssfReader.getSheetsData().next();
+			return new Rows(opcPackage, sheet, XMLInputFactory.newInstance().createXMLStreamReader(sheet), sharedStrings).stream();
+		} catch (Exception e) {
+			if (opcPackage != null)
+				opcPackage.revert();
+			throw new RuntimeException("Cannot open \"" + file + "\"", e);
+		}
+	}
+
+	private static class Rows extends RecordIterator<Map<String, Object>> {
+		private final OPCPackage opcPackage;
+		private final InputStream sheet;
+		private final XMLStreamReader xml;
+		private final ReadOnlySharedStringsTable sharedStrings;
+		private List<String> header;
+
+		Rows(OPCPackage opcPackage, InputStream sheet, XMLStreamReader xml, ReadOnlySharedStringsTable sharedStrings) {
+			this.opcPackage = opcPackage;
+			this.sheet = sheet;
+			this.xml = xml;
+			this.sharedStrings = sharedStrings;
+		}
+
+		@Override
+		protected Map<String, Object> readNext() throws IOException {
+			try {
+				if (header == null) {
+					header = readRow();
+					if (header == null)
+						return null;
+				}
+
+				while (true) {
+					List<String> cells = readRow();
+					if (cells == null)
+						return null;
+
+					Map<String, Object> record = new LinkedHashMap<>();
+					for (int i = 0; i < header.size() && i < cells.size(); i++) {
+						if (header.get(i) != null && cells.get(i) != null)
+							record.put(header.get(i), cells.get(i));
+					}
+					if (!record.isEmpty())
+						return record;
+				}
+			} catch (XMLStreamException e) {
+				throw new IOException("Malformed sheet", e);
+			}
+		}
+
+		/**
+		 * @return The cells of the next row by column index, <code>null</code> for empty cells, or <code>null</code> after the last row
+		 */
+		private List<String> readRow() throws XMLStreamException {
+			while (!(xml.isStartElement() && xml.getLocalName().equals("row"))) {
+				if (!xml.hasNext())
+					return null;
+				xml.next();
+			}
+
+			List<String> cells = new ArrayList<>();
+			String reference = null;
+			String type = null;
+			StringBuilder text = new StringBuilder();
+
+			while (xml.hasNext()) {
+				int event = xml.next();
+				if (event == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("c")) {
+					reference = xml.getAttributeValue(null, "r");
+					type = xml.getAttributeValue(null, "t");
+					text.setLength(0);
+				} else if (event == XMLStreamConstants.START_ELEMENT && (xml.getLocalName().equals("v") || xml.getLocalName().equals("t"))) {
+					text.append(xml.getElementText());
+				} else if (event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("c")) {
+					int column = reference != null ? column(reference) : cells.size();
+					while (cells.size() <= column)
+						cells.add(null);
+					cells.set(column, value(type, text.toString()));
+				} else if (event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("row")) {
+					break;
+				}
+			}
+			return cells;
+		}
+
+		private String value(String type, String text) {
+			if (type == null || type.equals("n") || type.equals("str") || type.equals("inlineStr"))
+				return text.isEmpty() ? null : text;
+
+			switch (type) {
+			case "s":
+				return sharedStrings.getEntryAt(Integer.parseInt(text));
+			case "b":
+				return "1".equals(text) ? "true" : "false";
+			default:
+				// Errors
+				return null;
+			}
+		}
+
+		/**
+		 * Zero-based column index of a cell reference such as <code>AB12</code>.
+		 */
+		private static int column(String reference) {
+			int column = 0;
+			for (int i = 0; i < reference.length() && Character.isLetter(reference.charAt(i)); i++) {
+				column = column * 26 + (Character.toUpperCase(reference.charAt(i)) - 'A' + 1);
+			}
+			return column - 1;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				xml.close();
+			} catch (XMLStreamException e) {
+				throw new IOException(e);
+			} finally {
+				sheet.close();
+				opcPackage.revert();
+			}
+		}
+	}
+}
@@ -0,0 +1,306 @@
+package com.github.heussd.lodicity.model;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, precompiled definition of a single attribute of a {@link TypeDescriptor}. All schema properties are resolved once when the {@link Schema} is loaded, including a
+ * validator for the datatype, which does not allocate for valid values.
+ */
+public final class AttributeDescriptor {
+
+	/**
+	 * Protocols the JDK always has a handler for, URLs with these are accepted without constructing a {@link URL}.
+	 */
+	private static final String[] BUILTIN_PROTOCOLS = { "http:", "https:", "ftp:", "file:", "jar:" };
+
+	/**
+	 * Entries of the Index column that mean "index this attribute on its own". Numeric cells are read as "1.0".
+	 */
+	private static final Set<String> SINGLE_INDEX = new LinkedHashSet<>(Arrays.asList("x", "1", "1.0", "true", "yes"));
+
+	/**
+	 * Entry of the Index column that adds the attribute to the full-text index of its type.
+	 */
+	private static final String FULL_TEXT = "fulltext";
+
+	@FunctionalInterface
+	private interface ValueValidator {
+		boolean accepts(Object value);
+	}
+
+	private final String name;
+	private final int ordinal;
+	private final String dataTypeName;
+	private final DataType dataType;
+	private final String cardinality;
+	private final String application;
+	private final boolean listType;
+	private final boolean mandatory;
+	private final boolean optional;
+	private final Set<String> values;
+	private final List<String> indexes;
+	private final boolean fullText;
+	private final ValueValidator validator;
+	private final ValueValidator elementValidator;
+
+	@SuppressWarnings("unchecked")
+	AttributeDescriptor(String name, int ordinal, Map<SchemaProperty, Object> definition) {
+		this.name = name;
+		this.ordinal = ordinal;
+		this.dataTypeName = (String) definition.get(SchemaProperty.DATATYPE);
+		this.dataType = DataType.parse(dataTypeName);
+		this.cardinality = (String) definition.get(SchemaProperty.CARDINALITY);
+		this.application = (String) definition.get(SchemaProperty.APPLICATION);
+		this.listType = Boolean.TRUE.equals(definition.get(SchemaProperty.IS_LIST_TYPE));
+		this.mandatory = cardinality != null && cardinality.startsWith("1");
+		this.optional = cardinality != null && cardinality.startsWith("0");
+		this.values = definition.containsKey(SchemaProperty.VALUES)
+				? Collections.unmodifiableSet(new LinkedHashSet<>((Collection<String>) definition.get(SchemaProperty.VALUES))) : null;
+		this.indexes = parseIndexes(name, (String) definition.get(SchemaProperty.INDEX));
+		this.fullText = definition.get(SchemaProperty.INDEX) != null
+				&& Arrays.stream(((String) definition.get(SchemaProperty.INDEX)).split(",")).anyMatch(entry -> entry.trim().equalsIgnoreCase(FULL_TEXT));
+		this.validator = validatorFor(dataType, dataTypeName);
+		this.elementValidator = dataType == DataType.UNTYPED ? value -> true : new ClassNameValidator(dataTypeName);
+	}
+
+	/**
+	 * Checks the given value against this definition. A missing value for a mandatory attribute yields <code>false</code>, any other violation throws a
+	 * {@link RuntimeException} describing it.
+	 */
+	public boolean validate(Object value) {
+		if (value == null) {
+			// Value is null, but no cardinality is given -> OK
+			return optional || !mandatory;
+		}
+
+		if (listType || isPairType()) {
+			// Special validation case for Pair* types: Validate them as if they are lists
+			if (!(value instanceof Collection<?>))
+				throw new RuntimeException("Invalid attribute type \"" + value.getClass().getSimpleName() + "\", expected type was \"Collection\"");
+
+			if (((Collection<?>) value).size() == 0 && mandatory)
+				throw new RuntimeException("Mendatory list has zero elements");
+
+			if (isPairType()) {
+				if (!(value instanceof ArrayList))
+					throw new RuntimeException("Attribute of type \"Pair\" does not contain an ArrayList, but \"" + value.getClass().getSimpleName() + "\"");
+				return true;
+			}
+
+			for (Object innerValue : (Collection<?>) value) {
+				if (!elementValidator.accepts(innerValue))
+					throw new RuntimeException("Invalid list entity type \"" + innerValue.getClass().getSimpleName() + "\", expected type was \"" + dataTypeName + "\"");
+
+				// Schema may define the exact inner-list values that are allowed for this attribute
+				if (values != null && !values.contains(innerValue))
+					throw new RuntimeException("Invalid inner-list attribute value \"" + innerValue + "\", expected any of " + values);
+			}
+			return true;
+		}
+
+		if (!validator.accepts(value))
+			throw new RuntimeException("Cannot cast type \"" + value.getClass().getSimpleName() + "\" to \"" + dataTypeName + "\"");
+
+		// Schema may define the exact values that are allowed for this attribute
+		if (values != null && !values.contains(value))
+			throw new RuntimeException("Invalid attribute value \"" + value + "\", expected any of " + values);
+
+		return true;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Position of this attribute within its {@link TypeDescriptor}.
+	 */
+	public int getOrdinal() {
+		return ordinal;
+	}
+
+	/**
+	 * The datatype as written in the schema (with enums already reduced to "String").
+	 */
+	public String getDataTypeName() {
+		return dataTypeName;
+	}
+
+	public DataType getDataType() {
+		return dataType;
+	}
+
+	public String getCardinality() {
+		return cardinality;
+	}
+
+	public String getApplication() {
+		return application;
+	}
+
+	public boolean isListType() {
+		return listType;
+	}
+
+	public boolean isPairType() {
+		return dataType == DataType.PAIR;
+	}
+
+	public boolean isMandatory() {
+		return mandatory;
+	}
+
+	public boolean isOptional() {
+		return optional;
+	}
+
+	/**
+	 * The exact values allowed for this attribute, or <code>null</code> if it is not an enumeration.
+	 */
+	public Set<String> getValues() {
+		return values;
+	}
+
+	/**
+	 * Names of the indexes this attribute is part of. An index of its own is named after the attribute.
+	 */
+	public List<String> getIndexes() {
+		return indexes;
+	}
+
+	/**
+	 * Whether the attribute is part of the full-text index of its type, declared as <code>fulltext</code> in the Index column.
+	 */
+	public boolean isFullText() {
+		return fullText;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	private static List<String> parseIndexes(String name, String index) {
+		if (index == null || index.trim().isEmpty())
+			return Collections.emptyList();
+
+		List<String> indexes = new ArrayList<>();
+		for (String entry : index.split(",")) {
+			entry = entry.trim();
+			if (!entry.isEmpty() && !entry.equalsIgnoreCase(FULL_TEXT))
+				indexes.add(SINGLE_INDEX.contains(entry.toLowerCase()) ? name : entry);
+		}
+		return Collections.unmodifiableList(indexes);
+	}
+
+	/*
+	 * Most likely because of the JSON framework, number types are sometimes mixed up, e.g. an Integer is read as Long. So numbers are not checked for their current
+	 * data type, but if they are castable into the Schema-defined type.
+	 */
+	private static ValueValidator validatorFor(DataType dataType, String dataTypeName) {
+		switch (dataType) {
+		case UNTYPED:
+			return value -> true;
+		case FLOAT:
+			return value -> value instanceof Number || isFloat(value.toString());
+		case INTEGER:
+			return value -> value instanceof Integer || isInteger(value.toString());
+		case URL:
+			return value -> value instanceof URL || isUrl(value.toString());
+		case BOOLEAN:
+			return value -> value instanceof Boolean || "true".equals(value.toString()) || "false".equals(value.toString());
+		case STRING:
+			return value -> value instanceof String;
+		default:
+			// General purpose datatype validation
+			return new ClassNameValidator(dataTypeName);
+		}
+	}
+
+	private static boolean isFloat(String value) {
+		int i = 0;
+		int length = value.length();
+		if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+'))
+			i++;
+
+		int digits = 0;
+		while (i < length && Character.isDigit(value.charAt(i))) {
+			i++;
+			digits++;
+		}
+		if (i < length && value.charAt(i) == '.') {
+			i++;
+			while (i < length && Character.isDigit(value.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+		if (digits > 0 && i == length)
+			return true;
+
+		// Exponents, NaN, hex notation and the like are rare, leave them to the JDK
+		try {
+			Float.parseFloat(value);
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static boolean isInteger(String value) {
+		try {
+			Integer.parseInt(value);
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static boolean isUrl(String value) {
+		for (String protocol : BUILTIN_PROTOCOLS) {
+			if (value.regionMatches(true, 0, protocol, 0, protocol.length()))
+				return true;
+		}
+
+		try {
+			new URL(value);
+			return true;
+		} catch (MalformedURLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Accepts values whose class has the given simple name. The last matching class is remembered, so repeated checks are a reference comparison.
+	 */
+	private static final class ClassNameValidator implements ValueValidator {
+		private final String simpleName;
+		private volatile Class<?> acceptedClass;
+
+		ClassNameValidator(String simpleName) {
+			this.simpleName = simpleName;
+		}
+
+		@Override
+		public boolean accepts(Object value) {
+			Class<?> valueClass = value.getClass();
+			if (valueClass == acceptedClass)
+				return true;
+
+			if (valueClass.getSimpleName().equals(simpleName)) {
+				acceptedClass = valueClass;
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.github.heussd.lodicity.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Layout: A version byte, the number of elements as varint, then per element its UTF-8 length + 1 as varint (0 for <code>null</code>) followed by the bytes.
+ */
+final class BinaryListCodec implements ListCodec {
+
+	private static final byte VERSION = 1;
+
+	@Override
+	public Object encode(List<?> list) {
+		byte[][] elements = new byte[list.size()][];
+		int size = 1 + varintSize(elements.length);
+		for (int i = 0; i < elements.length; i++) {
+			Object element = list.get(i);
+			elements[i] = element == null ? null : element.toString().getBytes(StandardCharsets.UTF_8);
+			size += elements[i] == null ? 1 : varintSize(elements[i].length + 1) + elements[i].length;
+		}
+
+		byte[] bytes = new byte[size];
+		bytes[0] = VERSION;
+		int position = writeVarint(bytes, 1, elements.length);
+		for (byte[] element : elements) {
+			if (element == null) {
+				position = writeVarint(bytes, position, 0);
+			} else {
+				position = writeVarint(bytes, position, element.length + 1);
+				System.arraycopy(element, 0, bytes, position, element.length);
+				position += element.length;
+			}
+		}
+		return bytes;
+	}
+
+	@Override
+	public List<String> decode(Object columnValue) {
+		byte[] bytes = (byte[]) columnValue;
+		if (bytes[0] != VERSION)
+			throw new RuntimeException("Unsupported binary list format " + bytes[0]);
+
+		int[] position = { 1 };
+		int count = readVarint(bytes, position);
+		List<String> list = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int length = readVarint(bytes, position) - 1;
+			if (length < 0) {
+				list.add(null);
+			} else {
+				list.add(new String(bytes, position[0], length, StandardCharsets.UTF_8));
+				position[0] += length;
+			}
+		}
+		return list;
+	}
+
+	static byte[] pattern(Object element) {
+		byte[] value = element.toString().getBytes(StandardCharsets.UTF_8);
+		byte[] bytes = new byte[varintSize(value.length + 1) + value.length];
+		System.arraycopy(value, 0, bytes, writeVarint(bytes, 0, value.length + 1), value.length);
+		return bytes;
+	}
+
+	private static int varintSize(int value) {
+		int size = 1;
+		while ((value >>>= 7) != 0)
+			size++;
+		return size;
+	}
+
+	private static int writeVarint(byte[] bytes, int position, int value) {
+		while ((value & ~0x7F) != 0) {
+			bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[position++] = (byte) value;
+		return position;
+	}
+
+	private static int readVarint(byte[] bytes, int[] position) {
+		int value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = bytes[position[0]++];
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+	}
+}
@@ -1,33 +1,68 @@
 package com.github.heussd.lodicity.model;
 
 import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
-public class DataObject extends HashMap<String, Object> implements Serializable {
+/**
+ * A schema-aware {@link Map}: Values of attributes defined by the {@link Schema} are kept in a flat slot array, indexed by {@link AttributeDescriptor#getOrdinal()}. The
+ * class attribute and the Hibernate id are backed by fields. Only keys outside the schema fall back to a {@link HashMap}, which is created on demand.
+ */
+public class DataObject extends AbstractMap<String, Object> implements Serializable {
 
 	public static final String HIBERNATE_INTERNAL_ID = "hibernateInternalId";
 
-	private final static List<String> SCHEMA_IGNORED_ATTRIBUTES = Arrays.asList("_class_", HIBERNATE_INTERNAL_ID);
+	private static final String CLASS_ATTRIBUTE = "_class_";
+
+	/**
+	 * Key under which Hibernate stores the entity name in the maps it instantiates.
+	 */
+	private static final String HIBERNATE_ENTITY_NAME = "$type$";
+
+	private final static List<String> SCHEMA_IGNORED_ATTRIBUTES = Arrays.asList(CLASS_ATTRIBUTE, HIBERNATE_INTERNAL_ID);
 
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Marks a slot that holds an explicit <code>null</code>, as opposed to an absent attribute.
+	 */
+	private enum Null {
+		VALUE
+	}
+
 	public String hibernateInternalId;
 
+	private transient TypeDescriptor typeDescriptor;
+
+	private Object[] slots;
+
+	private HashMap<String, Object> extraAttributes;
+
+	private boolean classAttribute = false;
+
+	private int slotCount = 0;
+
+	private boolean readOnly = false;
+
 	@Override
 	public Object put(String attribute, Object value) {
 		return put(attribute, value, true);
 	}
 
 	public Object put(String attribute, Object value, boolean validate) {
-		Object previousValue = super.get(attribute);
+		checkWritable();
+		Object previousValue = getRaw(attribute);
 
 		if (previousValue != null && previousValue instanceof List) {
 			if (!(value instanceof List)) {
@@ -38,12 +73,12 @@ public class DataObject extends HashMap<String, Object> implements Serializable
 			}
 		}
 
-		if (!SCHEMA_IGNORED_ATTRIBUTES.contains(attribute)) {
-			if (validate)
-				assert Schema.isValid(this, attribute, value);
+		if (validate && !SCHEMA_IGNORED_ATTRIBUTES.contains(attribute) && getValidationPolicy().validatesOnWrite()) {
+			if (!Schema.isValid(this, Schema.getAttribute(this, attribute), value))
+				throw new RuntimeException("Mandatory attribute \"" + attribute + "\" cannot be null in type \"" + getClass().getSimpleName() + "\"");
 		}
 
-		super.put(attribute, value);
+		putRaw(attribute, value);
 		return previousValue;
 	}
 
@@ -59,46 +94,52 @@ public class DataObject extends HashMap<String, Object> implements Serializable
 
 	@SuppressWarnings("unchecked")
 	protected <T> T get(String attribute, boolean validate) {
-		Object value = super.get(attribute);
+		if (SCHEMA_IGNORED_ATTRIBUTES.contains(attribute))
+			return (T) getRaw(attribute);
 
-		if (Schema.isListType(this.getClass(), attribute)) {
+		AttributeDescriptor attributeDescriptor = Schema.getAttribute(this, attribute);
+		Object value = unmask(slots[attributeDescriptor.getOrdinal()]);
+
+		if (attributeDescriptor.isListType()) {
 			// Value might already be converted
 			if (value != null && value instanceof Collection) {
 				return (T) value;
 			}
 
-			// Deserialize list from JSON object
-			if (!(value instanceof ArrayList)) {
-				String jsonString = (String) value;
-				List<String> list = new ArrayList<String>();
-
-				if (jsonString != null && !jsonString.equals("")) {
-					// https://stackoverflow.com/questions/3395729/convert-json-array-to-normal-java-array
-					JSONArray jsonArray = new JSONArray(jsonString);
-					if (jsonArray != null) {
-						int len = jsonArray.length();
-						for (int i = 0; i < len; i++) {
-							list.add(jsonArray.get(i).toString());
-						}
-					}
-				}
-				value = list;
+			// Decode the column value once and keep the result, so repeated reads do not parse again
+			if (value != null) {
+				value = new DecodedList<>(value, ListCodec.decodeColumn(value));
+				slots[attributeDescriptor.getOrdinal()] = value;
 			}
 		}
 
-		if (validate && !SCHEMA_IGNORED_ATTRIBUTES.contains(attribute)) {
-			// System.out.println(attribute + " " + value);
-			assert Schema.isValid(this, attribute, value);
+		// Values have been validated when they were written, reads only re-check if explicitly asked for
+		if (validate && getValidationPolicy().validatesOnRead()) {
+			if (!Schema.isValid(this, attributeDescriptor, value))
+				throw new RuntimeException("Mandatory attribute \"" + attribute + "\" is missing in type \"" + getClass().getSimpleName() + "\"");
 		}
 
 		// Make sure lists always return != null
-		if (value == null && Schema.isListType(this, attribute)) {
+		if (value == null && attributeDescriptor.isListType()) {
 			value = new ArrayList<>();
 		}
 
 		return (T) value;
 	}
 
+	/**
+	 * Returns the precompiled schema of this type, or <code>null</code> if the schema does not define it.
+	 */
+	public TypeDescriptor getTypeDescriptor() {
+		if (typeDescriptor == null)
+			typeDescriptor = Schema.getTypeDescriptor(getClass());
+		return typeDescriptor;
+	}
+
+	public ValidationPolicy getValidationPolicy() {
+		return Schema.getValidationPolicy(getClass());
+	}
+
 	public static String generateId(String... identifierStrings) {
 		return String.join("_", Arrays.asList(identifierStrings));
 	}
@@ -107,8 +148,15 @@ public class DataObject extends HashMap<String, Object> implements Serializable
 		return JSONObject.valueToString(this);
 	}
 
+	/**
+	 * Copies the given map without validation, e.g. a row read by Hibernate. Hibernate's internal entity name entry is skipped.
+	 */
 	public DataObject(Map<String, Object> map) {
-		super(map);
+		initSlots();
+		for (Entry<String, Object> entry : map.entrySet()) {
+			if (!HIBERNATE_ENTITY_NAME.equals(entry.getKey()))
+				putRaw(entry.getKey(), entry.getValue());
+		}
 	}
 
 	// Needed for Hibernate
@@ -124,6 +172,7 @@ public class DataObject extends HashMap<String, Object> implements Serializable
 	// Deprecated?
 
 	public DataObject() {
+		initSlots();
 		addClassAttribute();
 
 		// /* Make sure lists are empty by default after DataObject initialization. */
@@ -154,7 +203,261 @@ public class DataObject extends HashMap<String, Object> implements Serializable
 	}
 
 	public <T> T getWithoutValidation(String attribute) {
-		return this.<T> get(attribute);
+		return this.<T> get(attribute, false);
+	}
+
+	/**
+	 * Turns this object into a read-only view, e.g. of a projection that holds only some attributes: Attributes cannot be changed any more, and a Warehouse refuses to store
+	 * it.
+	 */
+	public DataObject readOnly() {
+		this.readOnly = true;
+		return this;
+	}
+
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	private void checkWritable() {
+		if (readOnly)
+			throw new UnsupportedOperationException("This " + getClass().getSimpleName() + " is a read-only view");
+	}
+
+	// Map implementation
+
+	private void initSlots() {
+		TypeDescriptor typeDescriptor = getTypeDescriptor();
+		slots = new Object[typeDescriptor != null ? typeDescriptor.size() : 0];
+	}
+
+	private int ordinalOf(Object key) {
+		TypeDescriptor typeDescriptor = getTypeDescriptor();
+		return typeDescriptor != null && key instanceof String ? typeDescriptor.ordinalOf((String) key) : -1;
+	}
+
+	private static Object mask(Object value) {
+		return value == null ? Null.VALUE : value;
+	}
+
+	private static Object unmask(Object slot) {
+		return slot == Null.VALUE ? null : slot;
+	}
+
+	private boolean isClassAttribute(Object key, Object value) {
+		return CLASS_ATTRIBUTE.equals(key) && getClass().getSimpleName().equals(value);
+	}
+
+	private Object getRaw(Object key) {
+		int ordinal = ordinalOf(key);
+		if (ordinal >= 0)
+			return unmask(slots[ordinal]);
+
+		if (HIBERNATE_INTERNAL_ID.equals(key))
+			return hibernateInternalId;
+
+		if (classAttribute && CLASS_ATTRIBUTE.equals(key))
+			return getClass().getSimpleName();
+
+		return extraAttributes != null ? extraAttributes.get(key) : null;
+	}
+
+	private Object putRaw(String key, Object value) {
+		int ordinal = ordinalOf(key);
+		if (ordinal >= 0) {
+			Object previous = slots[ordinal];
+			slots[ordinal] = mask(value);
+			if (previous == null)
+				slotCount++;
+			return unmask(previous);
+		}
+
+		if (HIBERNATE_INTERNAL_ID.equals(key) && (value == null || value instanceof String)) {
+			String previous = hibernateInternalId;
+			hibernateInternalId = (String) value;
+			return previous;
+		}
+
+		Object previous = removeRaw(key);
+		if (isClassAttribute(key, value)) {
+			classAttribute = true;
+		} else {
+			if (extraAttributes == null)
+				extraAttributes = new HashMap<>(4);
+			extraAttributes.put(key, value);
+		}
+		return previous;
+	}
+
+	private Object removeRaw(Object key) {
+		int ordinal = ordinalOf(key);
+		if (ordinal >= 0) {
+			Object previous = slots[ordinal];
+			slots[ordinal] = null;
+			if (previous != null)
+				slotCount--;
+			return unmask(previous);
+		}
+
+		if (HIBERNATE_INTERNAL_ID.equals(key) && hibernateInternalId != null) {
+			String previous = hibernateInternalId;
+			hibernateInternalId = null;
+			return previous;
+		}
+
+		if (classAttribute && CLASS_ATTRIBUTE.equals(key)) {
+			classAttribute = false;
+			return getClass().getSimpleName();
+		}
+
+		return extraAttributes != null ? extraAttributes.remove(key) : null;
+	}
+
+	@Override
+	public Object get(Object key) {
+		return getRaw(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		int ordinal = ordinalOf(key);
+		if (ordinal >= 0)
+			return slots[ordinal] != null;
+
+		if (HIBERNATE_INTERNAL_ID.equals(key) && hibernateInternalId != null)
+			return true;
+
+		if (classAttribute && CLASS_ATTRIBUTE.equals(key))
+			return true;
+
+		return extraAttributes != null && extraAttributes.containsKey(key);
+	}
+
+	@Override
+	public Object remove(Object key) {
+		checkWritable();
+		return removeRaw(key);
+	}
+
+	@Override
+	public int size() {
+		return slotCount + (classAttribute ? 1 : 0) + (hibernateInternalId != null ? 1 : 0) + (extraAttributes != null ? extraAttributes.size() : 0);
+	}
+
+	@Override
+	public void clear() {
+		checkWritable();
+		Arrays.fill(slots, null);
+		slotCount = 0;
+		classAttribute = false;
+		hibernateInternalId = null;
+		extraAttributes = null;
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return new AbstractSet<Entry<String, Object>>() {
+			@Override
+			public Iterator<Entry<String, Object>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return DataObject.this.size();
+			}
+		};
+	}
+
+	/**
+	 * Iterates the class attribute, the Hibernate id, the slots in ordinal order and finally the extra attributes.
+	 */
+	private class EntryIterator implements Iterator<Entry<String, Object>> {
+		private int position = -2;
+		private Iterator<Entry<String, Object>> extraIterator;
+		private String nextKey;
+		private String lastKey;
+		private boolean lastFromExtra;
+
+		@Override
+		public boolean hasNext() {
+			if (nextKey != null)
+				return true;
+
+			while (position < slots.length) {
+				int current = position++;
+				if (current == -2 && classAttribute) {
+					nextKey = CLASS_ATTRIBUTE;
+					return true;
+				} else if (current == -1 && hibernateInternalId != null) {
+					nextKey = HIBERNATE_INTERNAL_ID;
+					return true;
+				} else if (current >= 0 && slots[current] != null) {
+					nextKey = getTypeDescriptor().getAttribute(current).getName();
+					return true;
+				}
+			}
+
+			if (extraIterator == null && extraAttributes != null)
+				extraIterator = extraAttributes.entrySet().iterator();
+			return extraIterator != null && extraIterator.hasNext();
+		}
+
+		@Override
+		public Entry<String, Object> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			if (nextKey != null) {
+				lastKey = nextKey;
+				lastFromExtra = false;
+				nextKey = null;
+				return new WriteThroughEntry(lastKey, getRaw(lastKey), null);
+			}
+
+			Entry<String, Object> entry = extraIterator.next();
+			lastKey = entry.getKey();
+			lastFromExtra = true;
+			return new WriteThroughEntry(entry);
+		}
+
+		@Override
+		public void remove() {
+			checkWritable();
+			if (lastKey == null)
+				throw new IllegalStateException();
+
+			if (lastFromExtra)
+				extraIterator.remove();
+			else
+				removeRaw(lastKey);
+			lastKey = null;
+		}
+	}
+
+	/**
+	 * Entry whose value is written back to the slots, or to the given entry of the extra attributes.
+	 */
+	private class WriteThroughEntry extends SimpleEntry<String, Object> {
+		private static final long serialVersionUID = 1L;
+
+		private final transient Entry<String, Object> extraEntry;
+
+		WriteThroughEntry(String key, Object value, Entry<String, Object> extraEntry) {
+			super(key, value);
+			this.extraEntry = extraEntry;
+		}
+
+		WriteThroughEntry(Entry<String, Object> extraEntry) {
+			this(extraEntry.getKey(), extraEntry.getValue(), extraEntry);
+		}
+
+		@Override
+		public Object setValue(Object value) {
+			checkWritable();
+			super.setValue(value);
+			return extraEntry != null ? extraEntry.setValue(value) : putRaw(getKey(), value);
+		}
 	}
 
 }
@@ -16,6 +16,15 @@ public class DataObjectIterable implements Iterable<DataObject> {
 	int currentIndex = -1;
 	List<HashMap<String, Object>> list;
 	private Constructor<? extends DataObject> constructor;
+	private boolean readOnly = false;
+
+	/**
+	 * Iterates over {@link DataObject#readOnly()} views of the given rows, e.g. projections.
+	 */
+	public DataObjectIterable(Class<? extends DataObject> dataObjectClass, List<HashMap<String, Object>> list, boolean readOnly) {
+		this(dataObjectClass, list);
+		this.readOnly = readOnly;
+	}
 
 	public DataObjectIterable(Class<? extends DataObject> dataObjectClass, List<HashMap<String, Object>> list) {
 		this.dataObjectClass = dataObjectClass;
@@ -41,7 +50,8 @@ public class DataObjectIterable implements Iterable<DataObject> {
 			@Override
 			public DataObject next() {
 				try {
-					return constructor.newInstance(list.get(currentIndex));
+					DataObject dataObject = constructor.newInstance(list.get(currentIndex));
+					return readOnly ? dataObject.readOnly() : dataObject;
 				} catch (Exception e) {
 					throw new RuntimeException(
 							"Could not create a new instance of " + dataObjectClass.getSimpleName() + " from list item " + list.get(currentIndex), e);
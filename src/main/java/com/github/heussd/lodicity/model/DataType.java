@@ -0,0 +1,90 @@
+package com.github.heussd.lodicity.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Parsed form of the "Datatype" column of the schema.
+ */
+public enum DataType {
+	STRING,
+	FLOAT,
+	INTEGER,
+	BOOLEAN,
+	URL,
+	/**
+	 * Any of the Pair* types; validated like lists.
+	 */
+	PAIR,
+	/**
+	 * No datatype given, values are not checked.
+	 */
+	UNTYPED,
+	/**
+	 * Any other type name, most likely another {@link DataObject} type. Values must be instances of a class with exactly this simple name.
+	 */
+	OTHER;
+
+	/**
+	 * Converts a value read from text or another numeric type to this datatype, e.g. <code>"42"</code> or <code>42.0</code> to an {@link Integer}. Values of other datatypes
+	 * are returned as they are.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the value does not denote a value of this datatype, e.g. <code>2.5</code> or <code>"yes"</code>, or is out of its range
+	 */
+	public Object convert(Object value) {
+		switch (this) {
+		case STRING:
+			return value.toString();
+		case FLOAT:
+			if (value instanceof Float)
+				return value;
+			double doubleValue = value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString().trim());
+			if (Float.isInfinite((float) doubleValue) && !Double.isInfinite(doubleValue))
+				throw new IllegalArgumentException(value + " is out of the range of Float");
+			return (float) doubleValue;
+		case INTEGER:
+			if (value instanceof Integer || value instanceof Short || value instanceof Byte)
+				return ((Number) value).intValue();
+			try {
+				// Whole numbers only, 42.0 is fine, but 2.5 is not truncated
+				return new BigDecimal(value.toString().trim()).intValueExact();
+			} catch (ArithmeticException | NumberFormatException e) {
+				throw new IllegalArgumentException(value + " is not an Integer", e);
+			}
+		case BOOLEAN:
+			if (value instanceof Boolean)
+				return value;
+			if ("true".equalsIgnoreCase(value.toString().trim()))
+				return true;
+			if ("false".equalsIgnoreCase(value.toString().trim()))
+				return false;
+			throw new IllegalArgumentException(value + " is not a Boolean");
+		default:
+			return value;
+		}
+	}
+
+	public static DataType parse(String dataType) {
+		if (dataType == null || dataType.equals("null"))
+			return UNTYPED;
+
+		if (dataType.startsWith("Pair"))
+			return PAIR;
+
+		switch (dataType) {
+		case "Enum":
+		case "String":
+			return STRING;
+		case "Float":
+			return FLOAT;
+		case "Integer":
+			return INTEGER;
+		case "Boolean":
+			return BOOLEAN;
+		case "URL":
+			return URL;
+		default:
+			return OTHER;
+		}
+	}
+}
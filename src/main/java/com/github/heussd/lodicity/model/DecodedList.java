@@ -0,0 +1,210 @@
+package com.github.heussd.lodicity.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A list attribute that has been decoded from its column representation. It remembers that representation and whether it has been modified since, so an unchanged list
+ * can be written back without encoding it again.
+ */
+public class DecodedList<E> extends ArrayList<E> {
+
+	private static final long serialVersionUID = 1L;
+
+	private Object source;
+	private boolean modified = false;
+
+	public DecodedList(Object source, Collection<? extends E> elements) {
+		super(elements);
+		this.source = source;
+	}
+
+	/**
+	 * The column value this list has been decoded from.
+	 */
+	public Object getSource() {
+		return source;
+	}
+
+	public boolean isModified() {
+		return modified;
+	}
+
+	/**
+	 * Records that the list has been written as the given column value.
+	 */
+	public void markClean(Object source) {
+		this.source = source;
+		this.modified = false;
+	}
+
+	@Override
+	public boolean add(E e) {
+		modified = true;
+		return super.add(e);
+	}
+
+	@Override
+	public void add(int index, E element) {
+		modified = true;
+		super.add(index, element);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		modified = true;
+		return super.addAll(c);
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends E> c) {
+		modified = true;
+		return super.addAll(index, c);
+	}
+
+	@Override
+	public E set(int index, E element) {
+		modified = true;
+		return super.set(index, element);
+	}
+
+	@Override
+	public E remove(int index) {
+		modified = true;
+		return super.remove(index);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		modified = true;
+		return super.remove(o);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		modified = true;
+		return super.removeAll(c);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		modified = true;
+		return super.retainAll(c);
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super E> filter) {
+		modified = true;
+		return super.removeIf(filter);
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<E> operator) {
+		modified = true;
+		super.replaceAll(operator);
+	}
+
+	@Override
+	public void sort(Comparator<? super E> c) {
+		modified = true;
+		super.sort(c);
+	}
+
+	@Override
+	public void clear() {
+		modified = true;
+		super.clear();
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		modified = true;
+		super.removeRange(fromIndex, toIndex);
+	}
+
+	/**
+	 * Views can be written through, so the list is considered modified as soon as one is handed out.
+	 */
+	@Override
+	public List<E> subList(int fromIndex, int toIndex) {
+		modified = true;
+		return super.subList(fromIndex, toIndex);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return listIterator(0);
+	}
+
+	@Override
+	public ListIterator<E> listIterator() {
+		return listIterator(0);
+	}
+
+	@Override
+	public ListIterator<E> listIterator(int index) {
+		ListIterator<E> delegate = super.listIterator(index);
+
+		return new ListIterator<E>() {
+			@Override
+			public boolean hasNext() {
+				return delegate.hasNext();
+			}
+
+			@Override
+			public E next() {
+				return delegate.next();
+			}
+
+			@Override
+			public boolean hasPrevious() {
+				return delegate.hasPrevious();
+			}
+
+			@Override
+			public E previous() {
+				return delegate.previous();
+			}
+
+			@Override
+			public int nextIndex() {
+				return delegate.nextIndex();
+			}
+
+			@Override
+			public int previousIndex() {
+				return delegate.previousIndex();
+			}
+
+			@Override
+			public void remove() {
+				modified = true;
+				delegate.remove();
+			}
+
+			@Override
+			public void set(E e) {
+				modified = true;
+				delegate.set(e);
+			}
+
+			@Override
+			public void add(E e) {
+				modified = true;
+				delegate.add(e);
+			}
+
+			@Override
+			public void forEachRemaining(Consumer<? super E> action) {
+				delegate.forEachRemaining(action);
+			}
+		};
+	}
+}
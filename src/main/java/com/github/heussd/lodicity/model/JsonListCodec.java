@@ -0,0 +1,32 @@
+package com.github.heussd.lodicity.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.json.JSONArray;
+
+final class JsonListCodec implements ListCodec {
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object encode(List<?> list) {
+		return new JSONArray((Collection<Object>) list).toString();
+	}
+
+	@Override
+	public List<String> decode(Object columnValue) {
+		String jsonString = (String) columnValue;
+		List<String> list = new ArrayList<String>();
+
+		if (jsonString != null && !jsonString.equals("")) {
+			// https://stackoverflow.com/questions/3395729/convert-json-array-to-normal-java-array
+			JSONArray jsonArray = new JSONArray(jsonString);
+			int len = jsonArray.length();
+			for (int i = 0; i < len; i++) {
+				list.add(jsonArray.get(i).toString());
+			}
+		}
+		return list;
+	}
+}
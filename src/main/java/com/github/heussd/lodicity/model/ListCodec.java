@@ -0,0 +1,50 @@
+package com.github.heussd.lodicity.model;
+
+import java.util.List;
+
+/**
+ * Converts list attributes from and to the value stored in their column. Columns may contain values of any codec; they are told apart by their Java type, so existing
+ * JSON rows stay readable after switching to {@link #BINARY}.
+ */
+public interface ListCodec {
+
+	/**
+	 * JSON arrays stored as text, the default.
+	 */
+	ListCodec JSON = new JsonListCodec();
+
+	/**
+	 * Length-prefixed UTF-8 stored as a BLOB. Smaller and cheaper to encode and decode than {@link #JSON}.
+	 */
+	ListCodec BINARY = new BinaryListCodec();
+
+	/**
+	 * @return A {@link String} or a <code>byte[]</code>
+	 */
+	Object encode(List<?> list);
+
+	List<String> decode(Object columnValue);
+
+	/**
+	 * Tells the codec lists are currently written with, implemented by the Hibernate interceptor of a session. Used by {@link ListColumnType} for lists the interceptor has
+	 * not encoded.
+	 */
+	interface Source {
+		ListCodec getListCodec();
+	}
+
+	/**
+	 * Decodes a column value written by any of the built-in codecs.
+	 */
+	static List<String> decodeColumn(Object columnValue) {
+		return (columnValue instanceof byte[] ? BINARY : JSON).decode(columnValue);
+	}
+
+	/**
+	 * The bytes an element is represented with inside a {@link #BINARY} list, to narrow a search down with SQLite's <code>instr()</code>. Matches may also start in the
+	 * version byte, a length prefix or another element.
+	 */
+	static byte[] binaryPattern(Object element) {
+		return BinaryListCodec.pattern(element);
+	}
+}
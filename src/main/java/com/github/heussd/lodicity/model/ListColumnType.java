@@ -0,0 +1,95 @@
+package com.github.heussd.lodicity.model;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Interceptor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.usertype.UserType;
+
+/**
+ * Hibernate type of list columns. Passes encoded lists through as they are: text for {@link ListCodec#JSON}, BLOBs for {@link ListCodec#BINARY}.
+ */
+public class ListColumnType implements UserType {
+
+	@Override
+	public int[] sqlTypes() {
+		return new int[] { Types.VARCHAR };
+	}
+
+	@Override
+	public Class<?> returnedClass() {
+		return Object.class;
+	}
+
+	@Override
+	public boolean equals(Object x, Object y) throws HibernateException {
+		return Objects.deepEquals(x, y);
+	}
+
+	@Override
+	public int hashCode(Object x) throws HibernateException {
+		return x instanceof byte[] ? Arrays.hashCode((byte[]) x) : Objects.hashCode(x);
+	}
+
+	@Override
+	public Object nullSafeGet(ResultSet rs, String[] names, SessionImplementor session, Object owner) throws HibernateException, SQLException {
+		Object value = rs.getObject(names[0]);
+		return rs.wasNull() ? null : value;
+	}
+
+	@Override
+	public void nullSafeSet(PreparedStatement st, Object value, int index, SessionImplementor session) throws HibernateException, SQLException {
+		if (value == null) {
+			st.setNull(index, Types.VARCHAR);
+		} else if (value instanceof byte[]) {
+			st.setBytes(index, (byte[]) value);
+		} else if (value instanceof List) {
+			// Entities that did not pass the interceptor, e.g. merged copies, are written like all other rows
+			Object encoded = listCodec(session).encode((List<?>) value);
+			if (encoded instanceof byte[])
+				st.setBytes(index, (byte[]) encoded);
+			else
+				st.setString(index, (String) encoded);
+		} else {
+			st.setString(index, value.toString());
+		}
+	}
+
+	private static ListCodec listCodec(SessionImplementor session) {
+		Interceptor interceptor = session.getInterceptor();
+		return interceptor instanceof ListCodec.Source ? ((ListCodec.Source) interceptor).getListCodec() : ListCodec.JSON;
+	}
+
+	@Override
+	public Object deepCopy(Object value) throws HibernateException {
+		return value;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return false;
+	}
+
+	@Override
+	public Serializable disassemble(Object value) throws HibernateException {
+		return (Serializable) value;
+	}
+
+	@Override
+	public Object assemble(Serializable cached, Object owner) throws HibernateException {
+		return cached;
+	}
+
+	@Override
+	public Object replace(Object original, Object target, Object owner) throws HibernateException {
+		return original;
+	}
+}
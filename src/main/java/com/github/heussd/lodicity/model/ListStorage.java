@@ -0,0 +1,16 @@
+package com.github.heussd.lodicity.model;
+
+/**
+ * How list attributes of a {@link DataObject} type are stored, see {@link Schema#setListStorage(Class, ListStorage)}.
+ */
+public enum ListStorage {
+	/**
+	 * Encoded into a single column of the type's table, see {@link ListCodec}. This is the default.
+	 */
+	COLUMN,
+	/**
+	 * Additionally, every element is kept in a child table <code>&lt;TYPE&gt;_&lt;ATTRIBUTE&gt;(OWNER_ID, POSITION, VALUE)</code> with an index on
+	 * <code>VALUE</code>, so membership filters do not scan the whole table. The encoded column stays authoritative.
+	 */
+	CHILD_TABLES
+}
@@ -1,20 +1,19 @@
 package com.github.heussd.lodicity.model;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -26,10 +25,6 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -59,6 +54,22 @@ public class Schema {
 		return INSTANCE;
 	}
 
+	/**
+	 * Resolves the {@link TypeDescriptor} of each {@link DataObject} class once, instead of looking it up by simple name on every access.
+	 */
+	private final static ClassValue<TypeDescriptor> TYPE_DESCRIPTORS = new ClassValue<TypeDescriptor>() {
+		@Override
+		protected TypeDescriptor computeValue(Class<?> type) {
+			return getInstance().typeDescriptors.get(type.getSimpleName());
+		}
+	};
+
+	private final static Map<Class<? extends DataObject>, ValidationPolicy> VALIDATION_POLICIES = new ConcurrentHashMap<>();
+
+	private final static Map<Class<? extends DataObject>, ListStorage> LIST_STORAGES = new ConcurrentHashMap<>();
+
+	private final static Map<Class<? extends DataObject>, String> HIBERNATE_MAPPINGS = new ConcurrentHashMap<>();
+
 	/**
 	 * <b>How to use</b>: The schema is implemented with three nested {@link HashMap}s. Their keys have the following hierarchy:<br>
 	 * <code>type -> attribute -> {@link SchemaProperty} -> property value</code> <br>
@@ -67,89 +78,102 @@ public class Schema {
 	 */
 	private Map<String, HashMap<String, HashMap<SchemaProperty, Object>>> schemaModel;
 
+	/**
+	 * Precompiled, immutable form of {@link #schemaModel}, used on all hot paths.
+	 */
+	private Map<String, TypeDescriptor> typeDescriptors;
+
 	private Schema(File file) {
 		try {
 			schemaModel = new HashMap<>();
-
-			Workbook workbook = null;
-			try (InputStream inputStream = new FileInputStream(file)) {
-				workbook = WorkbookFactory.create(inputStream);
+			typeDescriptors = new HashMap<>();
+
+			long start = System.nanoTime();
+			Map<String, List<String[]>> sheets;
+			try {
+				sheets = SchemaWorkbookReader.readStreaming(file);
+			} catch (Exception e) {
+				// E.g. a schema in the old binary format
+				LOGGER.debug("Cannot stream schema workbook, loading it completely", e);
+				sheets = SchemaWorkbookReader.readWorkbook(file);
 			}
 
-			for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
-				Sheet sheet = workbook.getSheetAt(i);
+			for (Entry<String, List<String[]>> sheet : sheets.entrySet()) {
+				readSheet(sheet.getKey(), sheet.getValue());
+			}
+			LOGGER.debug("Loaded schema with {} types in {} milliseconds", typeDescriptors.size(), Math.round((System.nanoTime() - start) / 1000000d));
+		} catch (Throwable t) {
+			throw new RuntimeException("Cannot initialize schema", t);
+		}
+	}
 
-				// Make sure the selected sheet has the right structure
-				Row firstRow = sheet.getRow(0);
-				if (!firstRow.getCell(SchemaProperty.ATTRIBUTE_NAME.cellIndex).toString().equals("Attribute"))
-					continue;
+	private static String cell(String[] row, SchemaProperty schemaProperty) {
+		return row != null && schemaProperty.cellIndex < row.length ? row[schemaProperty.cellIndex] : null;
+	}
 
-				assert firstRow.getCell(SchemaProperty.CARDINALITY.cellIndex).toString().equals("Cardinality") : "Invalid sheet structure in sheet \""
-						+ sheet.getSheetName() + "\": Cardinality not found";
+	private void readSheet(String sheetName, List<String[]> rows) {
+		// Make sure the selected sheet has the right structure
+		String[] firstRow = rows.isEmpty() ? null : rows.get(0);
+		if (!"Attribute".equals(cell(firstRow, SchemaProperty.ATTRIBUTE_NAME)))
+			return;
 
-				assert firstRow.getCell(SchemaProperty.DATATYPE.cellIndex).toString().equals("Datatype") : "Invalid sheet structure in sheet \""
-						+ sheet.getSheetName() + "\": Datatype not found";
+		assert "Cardinality".equals(cell(firstRow, SchemaProperty.CARDINALITY)) : "Invalid sheet structure in sheet \"" + sheetName + "\": Cardinality not found";
 
-				assert firstRow.getCell(SchemaProperty.APPLICATION.cellIndex).toString().equals("Application") : "Invalid sheet structure in sheet \""
-						+ sheet.getSheetName() + "\": Application not found";
+		assert "Datatype".equals(cell(firstRow, SchemaProperty.DATATYPE)) : "Invalid sheet structure in sheet \"" + sheetName + "\": Datatype not found";
 
-				// Produce a random access structure of the selected sheet
-				HashMap<String, HashMap<SchemaProperty, Object>> attributeDefintion = new HashMap<>();
-				for (int rowNumber = 1; rowNumber <= sheet.getLastRowNum(); rowNumber++) {
-					Row attributeRow = sheet.getRow(rowNumber);
+		assert "Application".equals(cell(firstRow, SchemaProperty.APPLICATION)) : "Invalid sheet structure in sheet \"" + sheetName + "\": Application not found";
 
-					HashMap<SchemaProperty, Object> attributes = new HashMap<>();
+		// Older schemas have no Index column
+		boolean hasIndexColumn = "Index".equals(cell(firstRow, SchemaProperty.INDEX));
 
-					// There might be empty rows in the schema, skip them here
-					if (attributeRow == null)
-						continue;
+		// Produce a random access structure of the selected sheet
+		HashMap<String, HashMap<SchemaProperty, Object>> attributeDefintion = new HashMap<>();
+		List<AttributeDescriptor> attributeDescriptors = new ArrayList<>();
+		for (int rowNumber = 1; rowNumber < rows.size(); rowNumber++) {
+			String[] attributeRow = rows.get(rowNumber);
 
-					// The getStringCellValue method explicitly validates a cell
-					// to be of type String - this is pretty much of use here...
-					String attribute = attributeRow.getCell(SchemaProperty.ATTRIBUTE_NAME.cellIndex) != null
-							? attributeRow.getCell(SchemaProperty.ATTRIBUTE_NAME.cellIndex).getStringCellValue() : null;
+			HashMap<SchemaProperty, Object> attributes = new HashMap<>();
 
-					if (attribute == null)
-						continue;
+			// There might be empty rows in the schema, skip them here
+			String attribute = cell(attributeRow, SchemaProperty.ATTRIBUTE_NAME);
+			if (attribute == null)
+				continue;
 
-					// Read all properties from excel
-					for (SchemaProperty schemaProperty : SchemaProperty.values()) {
-						// Only consider properties with a valid cell index
-						if (schemaProperty.cellIndex > 0) {
-							attributes.put(schemaProperty,
-									attributeRow.getCell(schemaProperty.cellIndex) != null ? attributeRow.getCell(schemaProperty.cellIndex).toString() : null);
-						}
-					}
+			// Read all properties from excel
+			for (SchemaProperty schemaProperty : SchemaProperty.values()) {
+				// Only consider properties with a valid cell index
+				if (schemaProperty.cellIndex > 0 && (schemaProperty != SchemaProperty.INDEX || hasIndexColumn)) {
+					attributes.put(schemaProperty, cell(attributeRow, schemaProperty));
+				}
+			}
 
-					// Interpret cardinality, create field IS_LIST_TYPE
-					if (attributes.get(SchemaProperty.CARDINALITY) != null) {
-						String cardinality = (String) attributes.get(SchemaProperty.CARDINALITY);
-						assert (cardinality.length() == 3 || cardinality.length() == 4) : "Invalid cardinality: \"" + cardinality + "\"";
+			// Interpret cardinality, create field IS_LIST_TYPE
+			if (attributes.get(SchemaProperty.CARDINALITY) != null) {
+				String cardinality = (String) attributes.get(SchemaProperty.CARDINALITY);
+				assert (cardinality.length() == 3 || cardinality.length() == 4) : "Invalid cardinality: \"" + cardinality + "\"";
 
-						attributes.put(SchemaProperty.IS_LIST_TYPE, cardinality.substring(cardinality.length() - 1, cardinality.length()).equals("*"));
-					}
+				attributes.put(SchemaProperty.IS_LIST_TYPE, cardinality.substring(cardinality.length() - 1, cardinality.length()).equals("*"));
+			}
 
-					// Interpret enum entries, create field VALUES
-					if (attributes.get(SchemaProperty.DATATYPE) != null) {
-						String datatype = (String) attributes.get(SchemaProperty.DATATYPE);
+			// Interpret enum entries, create field VALUES
+			if (attributes.get(SchemaProperty.DATATYPE) != null) {
+				String datatype = (String) attributes.get(SchemaProperty.DATATYPE);
 
-						if (datatype.length() > 4 && datatype.substring(0, 4).equals("enum")) {
-							Collection<String> values = new ArrayList<>();
-							Collections.addAll(values, (datatype.substring(5, datatype.length() - 1)).split(", "));
-							attributes.put(SchemaProperty.VALUES, values);
+				if (datatype.length() > 4 && datatype.substring(0, 4).equals("enum")) {
+					Collection<String> values = new ArrayList<>();
+					Collections.addAll(values, (datatype.substring(5, datatype.length() - 1)).split(", "));
+					attributes.put(SchemaProperty.VALUES, values);
 
-							// Change DATATYPE
-							attributes.put(SchemaProperty.DATATYPE, "String");
+					// Change DATATYPE
+					attributes.put(SchemaProperty.DATATYPE, "String");
 
-						}
-					}
-					attributeDefintion.put(attribute, attributes);
 				}
-				schemaModel.put(sheet.getSheetName(), attributeDefintion);
 			}
-		} catch (Throwable t) {
-			throw new RuntimeException("Cannot initialize schema", t);
+			attributeDefintion.put(attribute, attributes);
+			attributeDescriptors.add(new AttributeDescriptor(attribute, attributeDescriptors.size(), attributes));
 		}
+		schemaModel.put(sheetName, attributeDefintion);
+		typeDescriptors.put(sheetName, new TypeDescriptor(sheetName, attributeDescriptors));
 	}
 
 	/**
@@ -179,29 +203,58 @@ public class Schema {
 	 * @return
 	 */
 	public static Set<String> getAttributes(DataObject dataObject, String application) {
-		HashMap<String, HashMap<SchemaProperty, Object>> dataObjectAttributes = getInstance().schemaModel.get(dataObject.getClass().getSimpleName());
 		Set<String> applicationKeySet = new HashSet<>();
 
-		// iterate through all attributes of the dataObject
-		for (Entry<String, HashMap<SchemaProperty, Object>> stringHashMapEntry : dataObjectAttributes.entrySet()) {
-			Entry<String, HashMap<SchemaProperty, Object>> pairs = (Entry) stringHashMapEntry;
-
-			// get SchemaPropertys
-			HashMap<SchemaProperty, Object> schemaPropertys = pairs.getValue();
-
-			// get application
-			String applicationSchemaProperty = (String) schemaPropertys.get(SchemaProperty.APPLICATION);
-
+		for (AttributeDescriptor attributeDescriptor : getTypeDescriptor(dataObject).getAttributes()) {
 			// schema property for the given application == null means for both (museum and library)
-			if (applicationSchemaProperty == null || applicationSchemaProperty.equals(application)) {
-				applicationKeySet.add((String) pairs.getKey());
+			if (attributeDescriptor.getApplication() == null || attributeDescriptor.getApplication().equals(application)) {
+				applicationKeySet.add(attributeDescriptor.getName());
 			}
-
-			// it.remove(); // avoids a ConcurrentModificationException
 		}
 		return applicationKeySet;
 	}
 
+	/**
+	 * Returns the precompiled schema of the given {@link DataObject} type, or <code>null</code> if the schema does not define it.
+	 */
+	public static TypeDescriptor getTypeDescriptor(Class<? extends DataObject> dataObjectClass) {
+		return TYPE_DESCRIPTORS.get(dataObjectClass);
+	}
+
+	/**
+	 * Returns the precompiled schema of the type of the given {@link DataObject}. In contrast to {@link #getTypeDescriptor(Class)}, an unknown type is an error.
+	 */
+	public static TypeDescriptor getTypeDescriptor(DataObject dataObject) {
+		TypeDescriptor typeDescriptor = dataObject.getTypeDescriptor();
+		if (typeDescriptor == null)
+			throw new RuntimeException("Schema definition not found for type \"" + dataObject.getClass().getSimpleName() + "\"");
+		return typeDescriptor;
+	}
+
+	/**
+	 * Returns the precompiled definition of the given attribute. Unknown types and attributes are an error.
+	 */
+	public static AttributeDescriptor getAttribute(DataObject dataObject, String attribute) {
+		return getAttribute(getTypeDescriptor(dataObject), attribute);
+	}
+
+	/**
+	 * Returns the precompiled definition of the given attribute. Unknown types and attributes are an error.
+	 */
+	public static AttributeDescriptor getAttribute(Class<? extends DataObject> dataObjectClass, String attribute) {
+		TypeDescriptor typeDescriptor = getTypeDescriptor(dataObjectClass);
+		if (typeDescriptor == null)
+			throw new RuntimeException("Schema definition not found for type \"" + dataObjectClass.getSimpleName() + "\"");
+		return getAttribute(typeDescriptor, attribute);
+	}
+
+	private static AttributeDescriptor getAttribute(TypeDescriptor typeDescriptor, String attribute) {
+		AttributeDescriptor attributeDescriptor = typeDescriptor.getAttribute(attribute);
+		if (attributeDescriptor == null)
+			throw new RuntimeException("No attribute definition found for attribute \"" + attribute + "\" in type \"" + typeDescriptor.getName() + "\"");
+		return attributeDescriptor;
+	}
+
 	/**
 	 * Returns all properties of a given attribute of a given type.
 	 * 
@@ -229,9 +282,7 @@ public class Schema {
 	 * @return
 	 */
 	public static boolean isListType(DataObject dataObject, String attribute) {
-		Map<SchemaProperty, Object> attributeDefinition = getAttributeDefinition(dataObject, attribute);
-
-		return attributeDefinition.get(SchemaProperty.IS_LIST_TYPE) != null && (boolean) attributeDefinition.get(SchemaProperty.IS_LIST_TYPE);
+		return getAttribute(dataObject, attribute).isListType();
 	}
 
 	/**
@@ -245,22 +296,15 @@ public class Schema {
 		assert dataObjectClass != null : "DataObjectClass is null";
 		assert attribute != null : "Attribute is null";
 
-		Map<SchemaProperty, Object> attributeDefinition = getInstance().schemaModel.get(dataObjectClass.getSimpleName()).get(attribute);
-
-		assert attributeDefinition != null : "no attribute definition found for attribute " + attribute + " in type " + dataObjectClass.getSimpleName();
-		return attributeDefinition.get(SchemaProperty.IS_LIST_TYPE) != null && (boolean) attributeDefinition.get(SchemaProperty.IS_LIST_TYPE);
+		return getAttribute(dataObjectClass, attribute).isListType();
 	}
 
 	public static boolean isMandatory(DataObject dataObject, String attribute) {
-		Map<SchemaProperty, Object> attributeDefinition = getAttributeDefinition(dataObject, attribute);
-
-		return attributeDefinition.get(SchemaProperty.CARDINALITY) != null && attributeDefinition.get(SchemaProperty.CARDINALITY).toString().startsWith("1");
+		return getAttribute(dataObject, attribute).isMandatory();
 	}
 
 	public static boolean isOptional(DataObject dataObject, String attribute) {
-		Map<SchemaProperty, Object> attributeDefinition = getAttributeDefinition(dataObject, attribute);
-
-		return attributeDefinition.get(SchemaProperty.CARDINALITY) != null && attributeDefinition.get(SchemaProperty.CARDINALITY).toString().startsWith("0");
+		return getAttribute(dataObject, attribute).isOptional();
 	}
 
 	/**
@@ -275,111 +319,19 @@ public class Schema {
 		if (attribute.equals("_class_") && dataObject.getClass().getSimpleName().equals(value))
 			return true;
 
-		try {
-			Map<SchemaProperty, Object> attributeDefinition = Schema.getAttributeDefinition(dataObject, attribute);
-
-			if (value == null) {
-				/*
-				 * Does the schema allow the value to be empty or null?
-				 */
-				if (Schema.isOptional(dataObject, attribute))
-					return true;
-
-				if (Schema.isMandatory(dataObject, attribute)) {
-					return false;
-				}
-
-				// Value is null, but not cardinality is given -> OK
-				return true;
-			}
-
-			String schemaDefinedDataType = Schema.getDataType(dataObject, attribute);
-
-			if (Schema.isListType(dataObject, attribute) || Schema.isPairType(dataObject, attribute)) {
-				// List types go in here...
-				// Special validation case for Pair* types: Validate
-				// them as if they are lists
-
-				assert value instanceof Collection<?> : "Invalid attribute type \"" + value.getClass().getSimpleName() + "\", expected type was \"Collection\"";
-
-				if (((Collection) value).size() == 0 && isMandatory(dataObject, attribute))
-					throw new RuntimeException("Mendatory list has zero elements");
-
-				for (Object innerValue : (Collection<?>) value) {
-
-					if (schemaDefinedDataType != null && schemaDefinedDataType.startsWith("Pair")) {
-						// Special validation case for Pair* types: Validate
-						// them as if they are lists
-						assert (value.getClass().getSimpleName()
-								.equals(ArrayList.class.getSimpleName())) : "Attribute of type \"Pair\" does not contain an ArrayList, but \""
-										+ value.getClass().getSimpleName() + "\"";
-					} else {
-						assert schemaDefinedDataType == null
-								|| innerValue.getClass().getSimpleName().equals(schemaDefinedDataType) : "Invalid list entity type \""
-										+ innerValue.getClass().getSimpleName() + "\", expected type was \"" + schemaDefinedDataType + "\"";
-
-						if (attributeDefinition.containsKey(SchemaProperty.VALUES)) {
-							// Schema defines the exact inner-list values that
-							// are allowed for this attribute
-							assert ((ArrayList<String>) attributeDefinition.get(SchemaProperty.VALUES))
-									.contains(innerValue) : "Invalid inner-list attribute value \"" + innerValue + "\", expected any of "
-											+ attributeDefinition.get(SchemaProperty.VALUES);
-						}
-					}
-				}
-			} else {
-				// Non-List-type attribute, make sure it is of the
-				// schema-defined type
-				if (schemaDefinedDataType != null && !schemaDefinedDataType.equals("null")) {
-					// Most likely because of the JSON framework, number types
-					// are sometimes mixed up, e.g. an Integer is read as Long.
-					// We don't seem to have influence on that, so we do not
-					// verify their current data type, but if they are castable
-					// into the Schema-defined type.
-					try {
-						switch (schemaDefinedDataType) {
-						case "Float":
-							new Float(value + "");
-							break;
-						case "Integer":
-							new Integer(value + "");
-							break;
-						case "URL":
-							new URL(value.toString());
-							break;
-						case "Boolean":
-							String v = value.toString();
-							if (!(v.equals("true") || v.equals("false"))) {
-								throw new ClassCastException("Cannot convert the value " + v + " to Boolean");
-							}
-							break;
-						default:
-							// General purpose datatype validation
-							assert value.getClass().getSimpleName().equals(schemaDefinedDataType) : "Invalid attribute type \""
-									+ value.getClass().getSimpleName() + "\", expected type was \"" + schemaDefinedDataType + "\"";
-							break;
-						}
-					} catch (Exception e) {
-						throw new RuntimeException("Cannot cast type \"" + value.getClass().getSimpleName() + "\" to \"" + schemaDefinedDataType + "\"", e);
-					}
-				}
-
-				if (attributeDefinition.containsKey(SchemaProperty.VALUES)) {
-					// Schema defines the exact values that are allowed for this
-					// attribute
-					assert ((ArrayList<String>) attributeDefinition.get(SchemaProperty.VALUES)).contains(value) : "Invalid attribute value \"" + value
-							+ "\", expected any of " + attributeDefinition.get(SchemaProperty.VALUES);
-				}
-
-			}
+		return isValid(dataObject, getAttribute(dataObject, attribute), value);
+	}
 
-			return true;
+	/**
+	 * Validates a value against an already resolved attribute definition of the given {@link DataObject}.
+	 */
+	static boolean isValid(DataObject dataObject, AttributeDescriptor attributeDescriptor, Object value) {
+		try {
+			return attributeDescriptor.validate(value);
 		} catch (Throwable e) {
-			throw new RuntimeException(
-					"Validation failed for attribute \"" + attribute + "\", value \"" + value + "\" in type \"" + dataObject.getClass().getSimpleName() + "\"",
-					e);
+			throw new RuntimeException("Validation failed for attribute \"" + attributeDescriptor.getName() + "\", value \"" + value + "\" in type \""
+					+ dataObject.getClass().getSimpleName() + "\"", e);
 		}
-
 	}
 
 	/**
@@ -388,18 +340,39 @@ public class Schema {
 	public static void validate(DataObject dataObject) {
 		assert dataObject != null : "Cannot validate a null object";
 
-		for (String attribute : getAttributes(dataObject)) {
-			// Make a validated get
-			dataObject.get(attribute);
+		for (AttributeDescriptor attributeDescriptor : getTypeDescriptor(dataObject).getAttributes()) {
+			if (!isValid(dataObject, attributeDescriptor, dataObject.getWithoutValidation(attributeDescriptor.getName())))
+				throw new RuntimeException("Mandatory attribute \"" + attributeDescriptor.getName() + "\" is missing in type \"" + dataObject.getClass().getSimpleName() + "\"");
 		}
 	}
 
-	public static boolean isPairType(DataObject dataObject, String attribute) {
-		String schemaDefinedDataType = Schema.getDataType(dataObject, attribute);
-		if (schemaDefinedDataType != null)
-			return schemaDefinedDataType.startsWith("Pair");
+	/**
+	 * Sets when instances of the given type are validated. Types without an explicit policy use {@link ValidationPolicy#ON_WRITE}.
+	 */
+	public static void setValidationPolicy(Class<? extends DataObject> dataObjectClass, ValidationPolicy validationPolicy) {
+		assert validationPolicy != null : "ValidationPolicy is null";
+		VALIDATION_POLICIES.put(dataObjectClass, validationPolicy);
+	}
+
+	public static ValidationPolicy getValidationPolicy(Class<? extends DataObject> dataObjectClass) {
+		return VALIDATION_POLICIES.getOrDefault(dataObjectClass, ValidationPolicy.ON_WRITE);
+	}
+
+	/**
+	 * Sets how list attributes of the given type are stored. Has to be set before a {@link com.github.heussd.lodicity.store.Warehouse} for this type is created. Types
+	 * without an explicit setting use {@link ListStorage#COLUMN}.
+	 */
+	public static void setListStorage(Class<? extends DataObject> dataObjectClass, ListStorage listStorage) {
+		assert listStorage != null : "ListStorage is null";
+		LIST_STORAGES.put(dataObjectClass, listStorage);
+	}
+
+	public static ListStorage getListStorage(Class<? extends DataObject> dataObjectClass) {
+		return LIST_STORAGES.getOrDefault(dataObjectClass, ListStorage.COLUMN);
+	}
 
-		return false;
+	public static boolean isPairType(DataObject dataObject, String attribute) {
+		return getAttribute(dataObject, attribute).isPairType();
 	}
 
 	public static String getDataType(DataObject dataObject, String attribute) {
@@ -407,19 +380,28 @@ public class Schema {
 			return "String";
 		}
 
-		try {
-			return (String) getInstance().schemaModel.get(dataObject.getClass().getSimpleName()).get(attribute).get(SchemaProperty.DATATYPE);
-		} catch (Exception e) {
-			throw new RuntimeException("Cannot read data type of attribute " + attribute + " of type " + dataObject.getClass().getSimpleName());
-		}
+		return getAttribute(dataObject, attribute).getDataTypeName();
 	}
 
 	public static String getDataType(Class<? extends DataObject> dataObjectClass, String attribute) {
-		return (String) getInstance().schemaModel.get(dataObjectClass.getSimpleName()).get(attribute).get(SchemaProperty.DATATYPE);
+		return getAttribute(dataObjectClass, attribute).getDataTypeName();
 	}
 
+	/**
+	 * Returns the Hibernate mapping of the given type. Mappings are generated once per type, as the schema does not change at runtime.
+	 */
 	public static String generateHibernateMapping(Class<? extends DataObject> dataObjectClass)
 			throws UnsupportedEncodingException, TransformerException, ParserConfigurationException {
+		String mapping = HIBERNATE_MAPPINGS.get(dataObjectClass);
+		if (mapping == null) {
+			mapping = buildHibernateMapping(dataObjectClass);
+			HIBERNATE_MAPPINGS.put(dataObjectClass, mapping);
+		}
+		return mapping;
+	}
+
+	private static String buildHibernateMapping(Class<? extends DataObject> dataObjectClass)
+			throws UnsupportedEncodingException, TransformerException, ParserConfigurationException {
 		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
 		DocumentBuilder builder = dbf.newDocumentBuilder();
 		Document doc = builder.newDocument();
@@ -458,8 +440,7 @@ public class Schema {
 			Element property = doc.createElement("property");
 			property.setAttribute("name", attribute);
 			property.setAttribute("column", attribute);
-			// property.setAttribute("index", "IDX_" + dataObjectClass.getSimpleName().toUpperCase() + "_SHARED, IDX_" + dataObjectClass.getSimpleName() + "_" + attribute);
-			String type = getHibernateType(getDataType(dataObjectClass, attribute));
+			String type = isListType(dataObjectClass, attribute) ? ListColumnType.class.getName() : getHibernateType(getDataType(dataObjectClass, attribute));
 			property.setAttribute("type", type);
 			entity.appendChild(property);
 		}
@@ -473,7 +454,7 @@ public class Schema {
 		Writer out = new StringWriter();
 		tf.transform(new DOMSource(doc), new StreamResult(out));
 
-		LOGGER.info("Produced Hibernate type definition for {} \n{}", dataObjectClass.getSimpleName(), out.toString());
+		LOGGER.debug("Produced Hibernate type definition for {} \n{}", dataObjectClass.getSimpleName(), out.toString());
 		return out.toString();
 	}
 
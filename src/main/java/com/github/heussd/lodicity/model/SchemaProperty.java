@@ -8,6 +8,10 @@ public enum SchemaProperty {
 	DATATYPE(2),
 	CARDINALITY(3),
 	APPLICATION(4),
+	/**
+	 * Optional. "x" (or "1", "true") indexes the attribute on its own, any other name adds it to the composite index of that name. Several entries are separated by commas.
+	 */
+	INDEX(5),
 	VALUES(-1),
 	IS_LIST_TYPE(-1);
 
@@ -0,0 +1,207 @@
+package com.github.heussd.lodicity.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+/**
+ * Reads the cells of all sheets of the schema workbook as text, by sheet name and row number. Missing rows and cells are <code>null</code>. Cell texts equal
+ * {@link Cell#toString()}, e.g. numbers read as <code>1.0</code>.
+ */
+class SchemaWorkbookReader {
+
+	private SchemaWorkbookReader() {
+	}
+
+	private static final String RELATIONSHIPS_NAMESPACE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+	/**
+	 * Parses the XML parts of an <code>.xlsx</code> file directly with a pull parser. Neither the POI object model of the workbook nor its XMLBeans schema types are
+	 * loaded, which takes a multiple of the time the schema itself needs.
+	 */
+	static Map<String, List<String[]>> readStreaming(File file) throws Exception {
+		XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+		xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+		try (ZipFile zipFile = new ZipFile(file)) {
+			// Sheet name -> relationship id -> part name
+			Map<String, String> sheetIds = new LinkedHashMap<>();
+			XMLStreamReader xml = open(zipFile, xmlInputFactory, "xl/workbook.xml");
+			while (xml.hasNext()) {
+				if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("sheet"))
+					sheetIds.put(xml.getAttributeValue(null, "name"), xml.getAttributeValue(RELATIONSHIPS_NAMESPACE, "id"));
+			}
+			xml.close();
+
+			Map<String, String> targets = new HashMap<>();
+			xml = open(zipFile, xmlInputFactory, "xl/_rels/workbook.xml.rels");
+			while (xml.hasNext()) {
+				if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("Relationship")) {
+					String target = xml.getAttributeValue(null, "Target");
+					targets.put(xml.getAttributeValue(null, "Id"), target.startsWith("/") ? target.substring(1) : "xl/" + target);
+				}
+			}
+			xml.close();
+
+			List<String> sharedStrings = zipFile.getEntry("xl/sharedStrings.xml") != null
+					? readSharedStrings(open(zipFile, xmlInputFactory, "xl/sharedStrings.xml")) : new ArrayList<>();
+
+			Map<String, List<String[]>> sheets = new LinkedHashMap<>();
+			for (Entry<String, String> sheetId : sheetIds.entrySet()) {
+				xml = open(zipFile, xmlInputFactory, targets.get(sheetId.getValue()));
+				sheets.put(sheetId.getKey(), readSheet(xml, sharedStrings));
+				xml.close();
+			}
+			return sheets;
+		}
+	}
+
+	private static XMLStreamReader open(ZipFile zipFile, XMLInputFactory xmlInputFactory, String name) throws IOException, XMLStreamException {
+		ZipEntry entry = zipFile.getEntry(name);
+		if (entry == null)
+			throw new IOException("Workbook part " + name + " not found");
+		return xmlInputFactory.createXMLStreamReader(zipFile.getInputStream(entry), "UTF-8");
+	}
+
+	private static List<String> readSharedStrings(XMLStreamReader xml) throws XMLStreamException {
+		List<String> sharedStrings = new ArrayList<>();
+		StringBuilder text = new StringBuilder();
+		boolean phonetic = false;
+
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (xml.getLocalName().equals("si"))
+					text.setLength(0);
+				else if (xml.getLocalName().equals("rPh"))
+					phonetic = true;
+				else if (xml.getLocalName().equals("t") && !phonetic)
+					text.append(xml.getElementText());
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (xml.getLocalName().equals("si"))
+					sharedStrings.add(text.toString());
+				else if (xml.getLocalName().equals("rPh"))
+					phonetic = false;
+			}
+		}
+		xml.close();
+		return sharedStrings;
+	}
+
+	private static List<String[]> readSheet(XMLStreamReader xml, List<String> sharedStrings) throws XMLStreamException {
+		List<String[]> rows = new ArrayList<>();
+		List<String> cells = null;
+		String reference = null;
+		String type = null;
+		StringBuilder text = new StringBuilder();
+
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				switch (xml.getLocalName()) {
+				case "row":
+					String rowNumber = xml.getAttributeValue(null, "r");
+					int index = rowNumber != null ? Integer.parseInt(rowNumber) - 1 : rows.size();
+					while (rows.size() < index)
+						rows.add(null);
+					cells = new ArrayList<>();
+					break;
+				case "c":
+					reference = xml.getAttributeValue(null, "r");
+					type = xml.getAttributeValue(null, "t");
+					text.setLength(0);
+					break;
+				case "v":
+				case "t":
+					text.append(xml.getElementText());
+					break;
+				default:
+					break;
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (xml.getLocalName().equals("c")) {
+					int column = reference != null ? column(reference) : cells.size();
+					while (cells.size() <= column)
+						cells.add(null);
+					cells.set(column, cellText(type, text.toString(), sharedStrings));
+				} else if (xml.getLocalName().equals("row")) {
+					rows.add(cells.toArray(new String[cells.size()]));
+				}
+			}
+		}
+		return rows;
+	}
+
+	private static String cellText(String type, String text, List<String> sharedStrings) {
+		if (type == null || type.equals("n"))
+			return text.isEmpty() ? "" : String.valueOf(Double.parseDouble(text));
+
+		switch (type) {
+		case "s":
+			return sharedStrings.get(Integer.parseInt(text));
+		case "b":
+			return "1".equals(text) ? "TRUE" : "FALSE";
+		default:
+			return text;
+		}
+	}
+
+	private static int column(String reference) {
+		int column = 0;
+		for (int i = 0; i < reference.length() && Character.isLetter(reference.charAt(i)); i++) {
+			column = column * 26 + (Character.toUpperCase(reference.charAt(i)) - 'A' + 1);
+		}
+		return column - 1;
+	}
+
+	/**
+	 * Loads the complete workbook with {@link WorkbookFactory}, which also reads <code>.xls</code> files.
+	 */
+	static Map<String, List<String[]>> readWorkbook(File file) throws Exception {
+		Map<String, List<String[]>> sheets = new LinkedHashMap<>();
+		Workbook workbook;
+		try (InputStream inputStream = new FileInputStream(file)) {
+			workbook = WorkbookFactory.create(inputStream);
+		}
+
+		for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+			Sheet sheet = workbook.getSheetAt(i);
+			List<String[]> rows = new ArrayList<>();
+			for (int rowNumber = 0; rowNumber <= sheet.getLastRowNum(); rowNumber++) {
+				Row row = sheet.getRow(rowNumber);
+				if (row == null) {
+					rows.add(null);
+					continue;
+				}
+
+				String[] cells = new String[Math.max(row.getLastCellNum(), 0)];
+				for (int cell = 0; cell < cells.length; cell++)
+					cells[cell] = row.getCell(cell) != null ? row.getCell(cell).toString() : null;
+				rows.add(cells);
+			}
+			sheets.put(sheet.getSheetName(), rows);
+		}
+		return sheets;
+	}
+}
@@ -0,0 +1,88 @@
+package com.github.heussd.lodicity.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, precompiled form of a schema sheet: The attributes of one {@link DataObject} type, addressable by name or by ordinal.
+ */
+public final class TypeDescriptor {
+
+	private final String name;
+	private final AttributeDescriptor[] attributes;
+	private final Map<String, AttributeDescriptor> attributesByName;
+	private final Map<String, List<String>> indexes = new LinkedHashMap<>();
+	private final List<String> fullTextAttributes = new ArrayList<>();
+
+	TypeDescriptor(String name, List<AttributeDescriptor> attributes) {
+		this.name = name;
+		this.attributes = attributes.toArray(new AttributeDescriptor[attributes.size()]);
+		this.attributesByName = new HashMap<>(attributes.size() * 2);
+
+		for (int i = 0; i < this.attributes.length; i++) {
+			assert this.attributes[i].getOrdinal() == i : "Ordinal mismatch for attribute " + this.attributes[i];
+			attributesByName.put(this.attributes[i].getName(), this.attributes[i]);
+
+			for (String index : this.attributes[i].getIndexes()) {
+				indexes.computeIfAbsent(index, key -> new ArrayList<>()).add(this.attributes[i].getName());
+			}
+			if (this.attributes[i].isFullText())
+				fullTextAttributes.add(this.attributes[i].getName());
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the definition of the given attribute, or <code>null</code> if the type does not define it.
+	 */
+	public AttributeDescriptor getAttribute(String attribute) {
+		return attributesByName.get(attribute);
+	}
+
+	public AttributeDescriptor getAttribute(int ordinal) {
+		return attributes[ordinal];
+	}
+
+	/**
+	 * Returns the ordinal of the given attribute, or -1 if the type does not define it.
+	 */
+	public int ordinalOf(String attribute) {
+		AttributeDescriptor attributeDescriptor = attributesByName.get(attribute);
+		return attributeDescriptor == null ? -1 : attributeDescriptor.getOrdinal();
+	}
+
+	public int size() {
+		return attributes.length;
+	}
+
+	public List<AttributeDescriptor> getAttributes() {
+		return Collections.unmodifiableList(Arrays.asList(attributes));
+	}
+
+	/**
+	 * Index name -> indexed attributes in schema order, as declared in the Index column.
+	 */
+	public Map<String, List<String>> getIndexes() {
+		return Collections.unmodifiableMap(indexes);
+	}
+
+	/**
+	 * Attributes of the full-text index in schema order, see {@link AttributeDescriptor#isFullText()}.
+	 */
+	public List<String> getFullTextAttributes() {
+		return Collections.unmodifiableList(fullTextAttributes);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,46 @@
+package com.github.heussd.lodicity.model;
+
+/**
+ * Controls when {@link DataObject}s are checked against the {@link Schema}. Configure it per type with {@link Schema#setValidationPolicy(Class, ValidationPolicy)} or per
+ * {@link com.github.heussd.lodicity.store.Warehouse}.
+ */
+public enum ValidationPolicy {
+	/**
+	 * Never validate, e.g. for trusted bulk loads.
+	 */
+	NONE(false, false, false),
+	/**
+	 * Validate each value once when it is put into a {@link DataObject}. This is the default.
+	 */
+	ON_WRITE(true, false, false),
+	/**
+	 * Validate complete {@link DataObject}s when they are persisted.
+	 */
+	ON_PERSIST(false, false, true),
+	/**
+	 * Validate on every write, read and persist.
+	 */
+	FULL(true, true, true);
+
+	private final boolean onWrite;
+	private final boolean onRead;
+	private final boolean onPersist;
+
+	private ValidationPolicy(boolean onWrite, boolean onRead, boolean onPersist) {
+		this.onWrite = onWrite;
+		this.onRead = onRead;
+		this.onPersist = onPersist;
+	}
+
+	public boolean validatesOnWrite() {
+		return onWrite;
+	}
+
+	public boolean validatesOnRead() {
+		return onRead;
+	}
+
+	public boolean validatesOnPersist() {
+		return onPersist;
+	}
+}
@@ -0,0 +1,96 @@
+package com.github.heussd.lodicity.store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.criterion.Projection;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
+
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.Schema;
+
+/**
+ * Aggregates computed by SQLite, see {@link Warehouse#aggregate(Aggregation, Filter...)}. Each result row is a map from the column names of this aggregation, i.e. the
+ * attribute names of {@link #groupBy(String)} and names like <code>count</code>, <code>sum(float)</code> or <code>countDistinct(client)</code>, to their values.
+ */
+public class Aggregation {
+
+	public static final String COUNT = "count";
+
+	private final Class<? extends DataObject> dataObjectClass;
+	private final ProjectionList projection = Projections.projectionList();
+	private final List<String> groups = new ArrayList<>();
+
+	public Aggregation(Class<? extends DataObject> dataObjectClass) {
+		this.dataObjectClass = dataObjectClass;
+	}
+
+	/**
+	 * Computes the aggregates per distinct value of the given attribute. Rows are sorted by the grouping attributes.
+	 */
+	public Aggregation groupBy(String field) {
+		assertScalar(field);
+		groups.add(field);
+		return add(Projections.groupProperty(field), field);
+	}
+
+	/**
+	 * Number of rows, in column {@link #COUNT}.
+	 */
+	public Aggregation count() {
+		return add(Projections.rowCount(), COUNT);
+	}
+
+	public Aggregation countDistinct(String field) {
+		assertScalar(field);
+		return add(Projections.countDistinct(field), "countDistinct(" + field + ")");
+	}
+
+	public Aggregation min(String field) {
+		assertScalar(field);
+		return add(Projections.min(field), "min(" + field + ")");
+	}
+
+	public Aggregation max(String field) {
+		assertScalar(field);
+		return add(Projections.max(field), "max(" + field + ")");
+	}
+
+	public Aggregation sum(String field) {
+		assertNumeric(field);
+		return add(Projections.sum(field), "sum(" + field + ")");
+	}
+
+	public Aggregation avg(String field) {
+		assertNumeric(field);
+		return add(Projections.avg(field), "avg(" + field + ")");
+	}
+
+	private Aggregation add(Projection projection, String column) {
+		this.projection.add(projection, column);
+		return this;
+	}
+
+	private void assertScalar(String field) {
+		assert !Schema.isListType(dataObjectClass, field) : "Cannot aggregate list attribute \"" + field + "\"";
+	}
+
+	private void assertNumeric(String field) {
+		assertScalar(field);
+		String dataType = Schema.getDataType(dataObjectClass, field);
+		assert "Integer".equals(dataType) || "Float".equals(dataType) : "Cannot sum or average \"" + field + "\" of type " + dataType;
+	}
+
+	public Class<? extends DataObject> getDataObjectClass() {
+		return dataObjectClass;
+	}
+
+	ProjectionList getProjection() {
+		return projection;
+	}
+
+	List<String> getGroups() {
+		return groups;
+	}
+}
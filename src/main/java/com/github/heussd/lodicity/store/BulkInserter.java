@@ -0,0 +1,187 @@
+package com.github.heussd.lodicity.store;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.DecodedList;
+import com.github.heussd.lodicity.model.ListCodec;
+import com.github.heussd.lodicity.model.Schema;
+
+/**
+ * Writes {@link DataObject}s straight into the table produced by {@link Schema#generateHibernateMapping(Class)}, bypassing Hibernate's entity machinery, the
+ * {@link DataObjectInterceptor} and validation. Rows are sent as multi-row <code>INSERT ... VALUES (...), (...)</code> statements that are prepared once and re-used, in a
+ * single transaction with <code>synchronous=OFF</code> and <code>journal_mode=WAL</code>.
+ */
+class BulkInserter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BulkInserter.class);
+
+	/**
+	 * SQLite's default SQLITE_MAX_VARIABLE_NUMBER
+	 */
+	private static final int MAX_VARIABLES = 999;
+
+	private final Class<? extends DataObject> dataObjectClass;
+	private final List<String> attributes;
+	private final String[] dataTypes;
+	private final boolean[] listTypes;
+	private final int rowsPerStatement;
+	private final ListCodec listCodec;
+
+	BulkInserter(Class<? extends DataObject> dataObjectClass, ListCodec listCodec) {
+		this.dataObjectClass = dataObjectClass;
+		this.listCodec = listCodec;
+		this.attributes = new ArrayList<>(Schema.getAttributes(dataObjectClass.getSimpleName()));
+		this.dataTypes = new String[attributes.size()];
+		this.listTypes = new boolean[attributes.size()];
+
+		for (int i = 0; i < attributes.size(); i++) {
+			dataTypes[i] = Schema.getDataType(dataObjectClass, attributes.get(i));
+			listTypes[i] = Schema.isListType(dataObjectClass, attributes.get(i));
+		}
+		this.rowsPerStatement = Math.max(1, MAX_VARIABLES / Math.max(1, attributes.size()));
+	}
+
+	long insert(Connection connection, Iterator<? extends DataObject> dataObjects) throws SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+
+		// PRAGMAs cannot be changed inside a transaction
+		if (!autoCommit)
+			connection.commit();
+		connection.setAutoCommit(true);
+		String synchronous = pragma(connection, "synchronous");
+		String journalMode = pragma(connection, "journal_mode");
+
+		pragma(connection, "synchronous", "OFF");
+		pragma(connection, "journal_mode", "WAL");
+
+		long rows = 0;
+		try {
+			connection.setAutoCommit(false);
+
+			try (PreparedStatement insert = connection.prepareStatement(insertStatement(rowsPerStatement))) {
+				List<DataObject> chunk = new ArrayList<>(rowsPerStatement);
+
+				while (dataObjects.hasNext()) {
+					DataObject dataObject = dataObjects.next();
+					assert dataObject.getClass().equals(dataObjectClass) : "Cannot bulk insert " + dataObject.getClass().getSimpleName() + " into "
+							+ dataObjectClass.getSimpleName();
+
+					chunk.add(dataObject);
+					if (chunk.size() == rowsPerStatement) {
+						bind(insert, chunk);
+						insert.executeUpdate();
+						rows += chunk.size();
+						chunk.clear();
+					}
+				}
+
+				if (chunk.size() > 0) {
+					try (PreparedStatement remainder = connection.prepareStatement(insertStatement(chunk.size()))) {
+						bind(remainder, chunk);
+						remainder.executeUpdate();
+						rows += chunk.size();
+					}
+				}
+			}
+			connection.commit();
+		} catch (SQLException | RuntimeException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(true);
+			try {
+				pragma(connection, "synchronous", synchronous);
+				pragma(connection, "journal_mode", journalMode);
+			} catch (SQLException e) {
+				LOGGER.warn("Could not restore connection settings after bulk insert", e);
+			}
+			connection.setAutoCommit(autoCommit);
+		}
+		return rows;
+	}
+
+	private String insertStatement(int rows) {
+		StringBuilder sql = new StringBuilder("INSERT INTO ").append(dataObjectClass.getSimpleName().toUpperCase()).append(" (");
+		StringBuilder row = new StringBuilder("(");
+		for (int i = 0; i < attributes.size(); i++) {
+			sql.append(i == 0 ? "" : ", ").append('"').append(attributes.get(i)).append('"');
+			row.append(i == 0 ? "?" : ", ?");
+		}
+		sql.append(") VALUES ");
+		row.append(')');
+
+		for (int i = 0; i < rows; i++) {
+			sql.append(i == 0 ? "" : ", ").append(row);
+		}
+		return sql.toString();
+	}
+
+	private void bind(PreparedStatement statement, List<DataObject> dataObjects) throws SQLException {
+		int parameter = 1;
+		for (DataObject dataObject : dataObjects) {
+			for (int i = 0; i < attributes.size(); i++) {
+				// Unset lists read as empty ones, but Hibernate stores them as NULL
+				Object value = listTypes[i] ? dataObject.get((Object) attributes.get(i)) : dataObject.getWithoutValidation(attributes.get(i));
+				statement.setObject(parameter++, toColumnValue(i, value));
+			}
+		}
+	}
+
+	/**
+	 * Converts a value into the representation Hibernate would have written for the mapped type.
+	 */
+	private Object toColumnValue(int index, Object value) {
+		if (value == null)
+			return null;
+
+		if (listTypes[index]) {
+			if (value instanceof String || value instanceof byte[])
+				return value;
+			if (value instanceof DecodedList && !((DecodedList<?>) value).isModified())
+				return ((DecodedList<?>) value).getSource();
+			return listCodec.encode((List<?>) value);
+		}
+
+		if (value instanceof DataObject)
+			return ((DataObject) value).toJson();
+
+		if (dataTypes[index] == null)
+			return value;
+
+		switch (dataTypes[index]) {
+		case "Float":
+			return value instanceof Number ? ((Number) value).floatValue() : Float.valueOf(value.toString());
+		case "Integer":
+			return value instanceof Number ? ((Number) value).intValue() : Integer.valueOf(value.toString());
+		case "Boolean":
+			return Boolean.valueOf(value.toString()) ? 1 : 0;
+		default:
+			return value.toString();
+		}
+	}
+
+	private static void pragma(Connection connection, String name, String value) throws SQLException {
+		// Some PRAGMAs report their new value as a result set, which has to be closed
+		try (Statement statement = connection.createStatement()) {
+			if (statement.execute("PRAGMA " + name + "=" + value))
+				statement.getResultSet().close();
+		}
+	}
+
+	private static String pragma(Connection connection, String name) throws SQLException {
+		try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("PRAGMA " + name)) {
+			return resultSet.next() ? resultSet.getString(1) : null;
+		}
+	}
+}
@@ -1,19 +1,38 @@
 package com.github.heussd.lodicity.store;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
 import org.hibernate.EmptyInterceptor;
 import org.hibernate.type.Type;
-import org.json.JSONArray;
 
+import com.github.heussd.lodicity.model.AttributeDescriptor;
 import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.DecodedList;
+import com.github.heussd.lodicity.model.ListCodec;
 import com.github.heussd.lodicity.model.Schema;
+import com.github.heussd.lodicity.model.TypeDescriptor;
 
-public class DataObjectInterceptor extends EmptyInterceptor {
+public class DataObjectInterceptor extends EmptyInterceptor implements ListCodec.Source {
 	private static final long serialVersionUID = 1L;
 
+	private ListCodec listCodec = ListCodec.JSON;
+
+	/**
+	 * Sets the codec new and modified list attributes are written with.
+	 */
+	public void setListCodec(ListCodec listCodec) {
+		assert listCodec != null : "ListCodec is null";
+		this.listCodec = listCodec;
+	}
+
+	@Override
+	public ListCodec getListCodec() {
+		return listCodec;
+	}
+
 	/**
 	 * Make sure that {@link DataObject}-instances are correctly identified as {@link HashMap} instances. This is essential for using a dynamic model based on {@link DataObject}s.
 	 * The original idea is presented in <a href="https://forum.hibernate.org/viewtopic.php?f=1&t=992446">https://forum.hibernate.org/viewtopic.php?f=1&t=992446</a>.
@@ -44,14 +63,48 @@ public class DataObjectInterceptor extends EmptyInterceptor {
 		return super.onFlushDirty(entity, id, currentState, previousState, propertyNames, types);
 	}
 
+	/**
+	 * Lists are compared in their embedded form, so unchanged lists do not cause an update just because the entity holds a decoded list and the snapshot its JSON.
+	 */
+	@Override
+	public int[] findDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState, String[] propertyNames, Type[] types) {
+		if (!(entity instanceof DataObject) || previousState == null)
+			return null;
+
+		TypeDescriptor typeDescriptor = Schema.getTypeDescriptor((DataObject) entity);
+		int[] dirty = new int[propertyNames.length];
+		int count = 0;
+
+		for (int i = 0; i < propertyNames.length; i++) {
+			AttributeDescriptor attributeDescriptor = typeDescriptor.getAttribute(propertyNames[i]);
+			Object current = currentState[i];
+
+			if (attributeDescriptor != null && attributeDescriptor.isListType() && current instanceof List) {
+				current = embedList(current);
+			} else if (current instanceof DataObject) {
+				current = ((DataObject) current).toJson();
+			}
+
+			if (!types[i].isEqual(current, previousState[i]))
+				dirty[count++] = i;
+		}
+		return Arrays.copyOf(dirty, count);
+	}
+
 	private Object[] embedListsAsJson(Object entity, Object[] states, String[] propertyNames, Type[] types) {
 		if (entity instanceof DataObject) {
+			TypeDescriptor typeDescriptor = Schema.getTypeDescriptor((DataObject) entity);
+
 			for (int i = 0; i < propertyNames.length; i++) {
-				String propertyName = propertyNames[i];
+				AttributeDescriptor attributeDescriptor = typeDescriptor.getAttribute(propertyNames[i]);
 
-				if (Schema.isListType((DataObject) entity, propertyName)) {
+				if (attributeDescriptor != null && attributeDescriptor.isListType()) {
 					Object value = states[i];
-					value = (String) new JSONArray((List<String>) value).toString();
+					if (value instanceof List) {
+						value = embedList(value);
+						if (states[i] instanceof DecodedList)
+							((DecodedList<?>) states[i]).markClean(value);
+					}
 					states[i] = value;
 				}
 			}
@@ -59,6 +112,16 @@ public class DataObjectInterceptor extends EmptyInterceptor {
 		return states;
 	}
 
+	/**
+	 * Re-uses the column value of lists that have been decoded and not modified since.
+	 */
+	private Object embedList(Object list) {
+		if (list instanceof DecodedList && !((DecodedList<?>) list).isModified())
+			return ((DecodedList<?>) list).getSource();
+
+		return listCodec.encode((List<?>) list);
+	}
+
 	private Object[] embedDataObjectsAsJson(Object entity, Object[] states, String[] propertyNames, Type[] types) {
 		if (entity instanceof DataObject) {
 			for (int i = 0; i < propertyNames.length; i++) {
@@ -0,0 +1,156 @@
+package com.github.heussd.lodicity.store;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.github.heussd.lodicity.model.AttributeDescriptor;
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.ListCodec;
+import com.github.heussd.lodicity.model.Schema;
+
+/**
+ * Side table <code>&lt;TYPE&gt;_DELTA(NATURAL_KEY, OWNER_ID, HASH)</code> of the rows written by {@link Warehouse#synchronize}: It maps the natural key of each row to its id
+ * and a hash of its content, so a load only has to write the rows that differ.
+ */
+class DeltaTable {
+
+	private final Class<? extends DataObject> dataObjectClass;
+	private final String table;
+
+	/**
+	 * Natural key, id and content hash of a row. The id of new rows is only known after they have been flushed, so the owner is kept instead.
+	 */
+	static class Row {
+		final String naturalKey;
+		final String hash;
+		private long ownerId;
+		private DataObject owner;
+
+		private Row(String naturalKey, long ownerId, String hash) {
+			this.naturalKey = naturalKey;
+			this.ownerId = ownerId;
+			this.hash = hash;
+		}
+
+		Row(String naturalKey, DataObject owner, String hash) {
+			this.naturalKey = naturalKey;
+			this.owner = owner;
+			this.hash = hash;
+		}
+
+		long getOwnerId() {
+			return owner != null ? Long.parseLong(owner.getHibernateInternalId()) : ownerId;
+		}
+	}
+
+	DeltaTable(Class<? extends DataObject> dataObjectClass) {
+		this.dataObjectClass = dataObjectClass;
+		this.table = dataObjectClass.getSimpleName().toUpperCase();
+	}
+
+	static String tableName(Class<? extends DataObject> dataObjectClass) {
+		return dataObjectClass.getSimpleName().toUpperCase() + "_DELTA";
+	}
+
+	static void drop(Connection connection, Class<? extends DataObject> dataObjectClass) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.executeUpdate("DROP TABLE IF EXISTS " + tableName(dataObjectClass));
+		}
+	}
+
+	/**
+	 * Creates the table if needed and reads all rows.
+	 */
+	Map<String, Row> read(Connection connection) throws SQLException {
+		Map<String, Row> rows = new HashMap<>();
+		try (Statement statement = connection.createStatement()) {
+			statement.executeUpdate(
+					"CREATE TABLE IF NOT EXISTS " + tableName(dataObjectClass) + " (NATURAL_KEY varchar(255) PRIMARY KEY, OWNER_ID integer NOT NULL, HASH varchar(40))");
+			try (ResultSet resultSet = statement.executeQuery("SELECT NATURAL_KEY, OWNER_ID, HASH FROM " + tableName(dataObjectClass))) {
+				while (resultSet.next()) {
+					rows.put(resultSet.getString(1), new Row(resultSet.getString(1), resultSet.getLong(2), resultSet.getString(3)));
+				}
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Records the given inserted or updated rows. The owners must have been flushed.
+	 */
+	void write(Connection connection, Collection<Row> rows) throws SQLException {
+		if (rows.isEmpty())
+			return;
+
+		try (PreparedStatement statement = connection.prepareStatement("INSERT OR REPLACE INTO " + tableName(dataObjectClass) + " (NATURAL_KEY, OWNER_ID, HASH) VALUES (?, ?, ?)")) {
+			for (Row row : rows) {
+				statement.setString(1, row.naturalKey);
+				statement.setLong(2, row.getOwnerId());
+				statement.setString(3, row.hash);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+	}
+
+	/**
+	 * Deletes the given rows from the entity table, its child tables and this table.
+	 */
+	void delete(Connection connection, Collection<Row> rows, ListTables listTables) throws SQLException {
+		if (rows.isEmpty())
+			return;
+
+		try (PreparedStatement entity = connection.prepareStatement("DELETE FROM " + table + " WHERE HIBERNATEINTERNALID = ?");
+				PreparedStatement delta = connection.prepareStatement("DELETE FROM " + tableName(dataObjectClass) + " WHERE NATURAL_KEY = ?")) {
+			for (Row row : rows) {
+				entity.setLong(1, row.getOwnerId());
+				entity.addBatch();
+				delta.setString(1, row.naturalKey);
+				delta.addBatch();
+			}
+			entity.executeBatch();
+			delta.executeBatch();
+		}
+
+		if (listTables != null)
+			listTables.delete(connection, rows.stream().map(Row::getOwnerId).collect(Collectors.toList()));
+	}
+
+	/**
+	 * Hashes the schema attributes of the given object in schema order. Lists are hashed in their JSON form.
+	 */
+	String hash(DataObject dataObject) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-1 is not available", e);
+		}
+
+		for (AttributeDescriptor attributeDescriptor : Schema.getTypeDescriptor(dataObjectClass).getAttributes()) {
+			Object value = dataObject.getWithoutValidation(attributeDescriptor.getName());
+			if (value instanceof List)
+				value = ListCodec.JSON.encode((List<?>) value);
+
+			digest.update(attributeDescriptor.getName().getBytes(StandardCharsets.UTF_8));
+			digest.update(value == null ? new byte[] { 0 } : ("=" + value).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) '\n');
+		}
+
+		StringBuilder hash = new StringBuilder(40);
+		for (byte b : digest.digest())
+			hash.append(String.format("%02x", b));
+		return hash.toString();
+	}
+}
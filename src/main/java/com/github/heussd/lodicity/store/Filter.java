@@ -1,11 +1,22 @@
 package com.github.heussd.lodicity.store;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.BinaryType;
+import org.hibernate.type.StringType;
+import org.hibernate.type.Type;
 
 import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.DataType;
+import com.github.heussd.lodicity.model.ListCodec;
+import com.github.heussd.lodicity.model.ListStorage;
 import com.github.heussd.lodicity.model.Schema;
 
 /**
@@ -16,8 +27,12 @@ import com.github.heussd.lodicity.model.Schema;
 public class Filter {
 
 	private Class<? extends DataObject> dataObjectClass;
-	private ArrayList<Criterion> criterions = new ArrayList<>();
 	private Criterion criterion;
+	private List<Order> orders = new ArrayList<>();
+	private Integer limit;
+	private Integer offset;
+	private DataObject after;
+	private List<String> selection;
 
 	public Filter(Class<? extends DataObject> dataObjectClass) {
 		this.dataObjectClass = dataObjectClass;
@@ -28,29 +43,248 @@ public class Filter {
 		this.criterion = criterion;
 	}
 
+	private Filter copy() {
+		Filter filter = new Filter(dataObjectClass, criterion);
+		filter.orders = new ArrayList<>(orders);
+		filter.limit = limit;
+		filter.offset = offset;
+		filter.after = after;
+		filter.selection = selection;
+		return filter;
+	}
+
+	/**
+	 * Returns a copy of this filter that also requires the given criterion. Sorting, limits, paging and selection are kept, so conditions and settings can be chained in any
+	 * order.
+	 */
+	private Filter with(Criterion criterion) {
+		Filter filter = copy();
+		filter.criterion = this.criterion == null ? criterion : Restrictions.and(this.criterion, criterion);
+		return filter;
+	}
+
 	public Criterion getCriterion() {
 		return this.criterion;
 	}
 
+	/**
+	 * Sorts the results by the given attribute, ascending. Further calls add further sort keys. Ordered results are finally sorted by their id, so pages are stable.
+	 */
+	public Filter orderBy(String field) {
+		return orderBy(field, true);
+	}
+
+	public Filter orderByDescending(String field) {
+		return orderBy(field, false);
+	}
+
+	private Filter orderBy(String field, boolean ascending) {
+		assert !Schema.isListType(dataObjectClass, field) : "Cannot order by list attribute \"" + field + "\"";
+		Filter filter = copy();
+		filter.orders.add(ascending ? Order.asc(field) : Order.desc(field));
+		return filter;
+	}
+
+	/**
+	 * Returns at most the given number of results.
+	 */
+	public Filter limit(int limit) {
+		assert limit > 0 : "Limit must be positive";
+		Filter filter = copy();
+		filter.limit = limit;
+		return filter;
+	}
+
+	/**
+	 * Skips the given number of results. Prefer {@link #after(DataObject)} for deep pages, as SQLite still reads all skipped rows.
+	 */
+	public Filter offset(int offset) {
+		assert offset >= 0 : "Offset must not be negative";
+		Filter filter = copy();
+		filter.offset = offset;
+		return filter;
+	}
+
+	/**
+	 * Keyset pagination: Returns the results that follow the given one, usually the last result of the previous page, in the order of {@link #orderBy(String)}. Unlike an
+	 * offset, this does not read the preceding rows, given an index on the sort keys. The sort attributes must not be <code>null</code>.
+	 */
+	public Filter after(DataObject dataObject) {
+		assert dataObject != null && dataObject.getHibernateInternalId() != null : "Only stored objects can be paged after";
+		Filter filter = copy();
+		filter.after = dataObject;
+		return filter;
+	}
+
+	/**
+	 * Projection: Reads only the given attributes and the id. {@link Warehouse#query(Filter...)} then returns {@link DataObject#readOnly()} views holding just these.
+	 */
+	public Filter select(String... attributes) {
+		assert attributes.length > 0 : "At least one attribute is required";
+		// Fails for attributes the schema does not define
+		for (String attribute : attributes)
+			Schema.getAttribute(dataObjectClass, attribute);
+		Filter filter = copy();
+		filter.selection = Arrays.asList(attributes);
+		return filter;
+	}
+
+	List<Order> getOrders() {
+		return orders;
+	}
+
+	Integer getLimit() {
+		return limit;
+	}
+
+	Integer getOffset() {
+		return offset;
+	}
+
+	DataObject getAfter() {
+		return after;
+	}
+
+	List<String> getSelection() {
+		return selection;
+	}
+
 	public Filter eq(String field, Object value) {
-		if (Schema.isListType(dataObjectClass, field)) {
-			return new Filter(dataObjectClass, Restrictions.like(field, "%\"" + value + "\"%"));
+		if (Schema.isListType(dataObjectClass, field) && Schema.getListStorage(dataObjectClass) == ListStorage.CHILD_TABLES) {
+			return with(Restrictions.sqlRestriction(
+					"{alias}.HIBERNATEINTERNALID IN (SELECT OWNER_ID FROM " + ListTables.tableName(dataObjectClass, field) + " WHERE VALUE = ?)", String.valueOf(value),
+					StringType.INSTANCE));
+		} else if (Schema.isListType(dataObjectClass, field)) {
+			// Lists may be stored as JSON text or as binary BLOBs, see ListCodec. Byte matches in BLOBs are confirmed element by element.
+			return with(Restrictions.or(Restrictions.like(field, "%\"" + value + "\"%"),
+					Restrictions.sqlRestriction("instr({alias}." + field + ", ?) > 0 AND " + ListContains.NAME + "({alias}." + field + ", ?)",
+							new Object[] { ListCodec.binaryPattern(value), String.valueOf(value) }, new Type[] { BinaryType.INSTANCE, StringType.INSTANCE })));
 		} else {
-			return new Filter(dataObjectClass, Restrictions.eq(field, value));
+			return with(Restrictions.eq(field, typed(field, value)));
 		}
 	}
 
+	/**
+	 * Attribute equals any of the given values.
+	 */
+	public Filter in(String field, Collection<?> values) {
+		assertScalar(field);
+		List<Object> typedValues = new ArrayList<>(values.size());
+		for (Object value : values)
+			typedValues.add(typed(field, value));
+		return with(Restrictions.in(field, typedValues));
+	}
+
+	/**
+	 * Attribute lies between the given values, both inclusive.
+	 */
+	public Filter between(String field, Object low, Object high) {
+		assertScalar(field);
+		return with(Restrictions.between(field, typed(field, low), typed(field, high)));
+	}
+
+	public Filter gt(String field, Object value) {
+		assertScalar(field);
+		return with(Restrictions.gt(field, typed(field, value)));
+	}
+
+	public Filter ge(String field, Object value) {
+		assertScalar(field);
+		return with(Restrictions.ge(field, typed(field, value)));
+	}
+
+	public Filter lt(String field, Object value) {
+		assertScalar(field);
+		return with(Restrictions.lt(field, typed(field, value)));
+	}
+
+	public Filter le(String field, Object value) {
+		assertScalar(field);
+		return with(Restrictions.le(field, typed(field, value)));
+	}
+
+	/**
+	 * Attribute is not set. For lists, this also holds if they are empty, as they read the same.
+	 */
+	public Filter isNull(String field) {
+		Schema.getAttribute(dataObjectClass, field);
+		if (Schema.isListType(dataObjectClass, field)) {
+			// Empty lists are stored encoded, in the format of the codec they were written with
+			return with(Restrictions.or(Restrictions.isNull(field), Restrictions.sqlRestriction("{alias}." + field + " IN (?, ?)",
+					new Object[] { ListCodec.JSON.encode(Collections.emptyList()), ListCodec.BINARY.encode(Collections.emptyList()) },
+					new Type[] { StringType.INSTANCE, BinaryType.INSTANCE })));
+		}
+		return with(Restrictions.isNull(field));
+	}
+
+	/**
+	 * Negates a filter. As in SQL, comparisons with unset attributes are unknown rather than false, so their negation does not match either, e.g.
+	 * <code>not(eq("client", "ULB"))</code> skips objects without a client; add {@link #isNull(String)} to include them.
+	 */
+	public Filter not(Filter filter) {
+		return with(Restrictions.not(nested(filter)));
+	}
+
+	/**
+	 * Requires all given filters. Only their conditions are combined, their sorting, limits, paging and selection are those of this filter.
+	 */
+	public Filter and(Filter... filters) {
+		return with(Restrictions.and(criterions(filters)));
+	}
+
+	private void assertScalar(String field) {
+		assert !Schema.isListType(dataObjectClass, field) : "Cannot compare list attribute \"" + field + "\"";
+	}
+
+	/**
+	 * Converts a value to the datatype the schema declares for the attribute, so e.g. <code>"42"</code> compares equal to the stored <code>42</code>. Fails for attributes
+	 * the schema does not define and for values that do not convert without loss, e.g. <code>2.5</code> for an Integer.
+	 */
+	private Object typed(String field, Object value) {
+		DataType dataType = Schema.getAttribute(dataObjectClass, field).getDataType();
+		return value == null ? null : dataType.convert(value);
+	}
+
+	/**
+	 * Full-text search in an attribute marked <code>fulltext</code> in the schema, using the SQLite FTS4 query syntax, e.g. <code>lodicity</code>, <code>"linked data"</code>,
+	 * <code>data*</code> or <code>linked OR open</code>. Unlike {@link #like(String, String)}, this is answered from an index. Results are sorted by the number of matches,
+	 * most first. The ranking requires this to be called on the outermost filter, not on one nested in {@link #and(Filter...)}, {@link #or(Filter...)} or
+	 * {@link #not(Filter)}.
+	 */
+	public Filter match(String field, String query) {
+		assert FullTextIndex.isIndexed(dataObjectClass, field) : "\"" + field + "\" is not in the full-text index of " + dataObjectClass.getSimpleName();
+		Filter filter = with(FullTextIndex.match(dataObjectClass, field, query));
+		filter.orders.add(0, new FullTextIndex.Rank(dataObjectClass, field, query));
+		return filter;
+	}
+
 	public Filter ilike(String field, String iLikeExpression) {
-		return new Filter(dataObjectClass, Restrictions.ilike(field, "%" + iLikeExpression + "%"));
+		return with(Restrictions.ilike(field, "%" + iLikeExpression + "%"));
 	}
 
+	/**
+	 * Requires any of the given filters. Only their conditions are combined, their sorting, limits, paging and selection are those of this filter.
+	 */
 	public Filter or(Filter... filters) {
-		Criterion[] cs = new Criterion[filters.length];
-		for (int i = 0; i < filters.length; i++) {
-			criterions.remove(filters[i]);
-			cs[i] = filters[i].getCriterion();
+		return with(Restrictions.or(criterions(filters)));
+	}
+
+	private Criterion[] criterions(Filter... filters) {
+		Criterion[] criterions = new Criterion[filters.length];
+		for (int i = 0; i < filters.length; i++)
+			criterions[i] = nested(filters[i]);
+		return criterions;
+	}
+
+	/**
+	 * Returns the condition of a filter to be combined with this one.
+	 */
+	private Criterion nested(Filter filter) {
+		assert filter.getCriterion() != null : "Filter has no condition to combine";
+		for (Order order : filter.getOrders()) {
+			assert !(order instanceof FullTextIndex.Rank) || orders.contains(order) : "match() cannot be nested, call it on the outermost filter";
 		}
-		return new Filter(dataObjectClass, Restrictions.or(cs));
+		return filter.getCriterion();
 	}
 
 	public Class<? extends DataObject> getDataObjectClass() {
@@ -58,7 +292,7 @@ public class Filter {
 	}
 
 	public Filter like(String field, String likeExpression) {
-		return new Filter(dataObjectClass, Restrictions.like(field, "%" + likeExpression + "%"));
+		return with(Restrictions.like(field, "%" + likeExpression + "%"));
 	}
 
 }
@@ -0,0 +1,113 @@
+package com.github.heussd.lodicity.store;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hibernate.Criteria;
+import org.hibernate.criterion.CriteriaQuery;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.StringType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.Schema;
+
+/**
+ * Maintains the full-text index <code>&lt;TYPE&gt;_FTS</code> of a type, an SQLite FTS4 table over the attributes marked <code>fulltext</code> in the schema. It refers to
+ * the rows of the type's table instead of copying them, and triggers on that table keep it in sync with every insert, update and delete, whether written through Hibernate
+ * or JDBC.
+ */
+class FullTextIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FullTextIndex.class);
+
+	private FullTextIndex() {
+	}
+
+	static String tableName(Class<? extends DataObject> dataObjectClass) {
+		return dataObjectClass.getSimpleName().toUpperCase() + "_FTS";
+	}
+
+	static boolean isIndexed(Class<? extends DataObject> dataObjectClass, String attribute) {
+		return Schema.getTypeDescriptor(dataObjectClass).getFullTextAttributes().contains(attribute);
+	}
+
+	/**
+	 * Creates the index and its triggers unless they exist. A new index is built from the existing rows.
+	 */
+	static void create(Connection connection, Class<? extends DataObject> dataObjectClass, boolean clear) throws SQLException {
+		List<String> attributes = Schema.getTypeDescriptor(dataObjectClass).getFullTextAttributes();
+		String table = dataObjectClass.getSimpleName().toUpperCase();
+		String index = tableName(dataObjectClass);
+
+		try (Statement statement = connection.createStatement()) {
+			if (clear || attributes.isEmpty())
+				statement.executeUpdate("DROP TABLE IF EXISTS " + index);
+			if (attributes.isEmpty())
+				return;
+
+			boolean exists;
+			try (ResultSet resultSet = statement.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name = '" + index + "'")) {
+				exists = resultSet.next();
+			}
+
+			String columns = attributes.stream().map(attribute -> "\"" + attribute + "\"").collect(Collectors.joining(", "));
+			String newValues = attributes.stream().map(attribute -> "new.\"" + attribute + "\"").collect(Collectors.joining(", "));
+
+			if (!exists) {
+				LOGGER.info("Creating full-text index {} on {} ({})", index, table, columns);
+				statement.executeUpdate("CREATE VIRTUAL TABLE " + index + " USING fts4(content=\"" + table + "\", " + columns + ")");
+				statement.executeUpdate("INSERT INTO " + index + "(" + index + ") VALUES ('rebuild')");
+			}
+
+			// The row id of the table is its id, as HIBERNATEINTERNALID is an INTEGER PRIMARY KEY
+			statement.executeUpdate("CREATE TRIGGER IF NOT EXISTS " + index + "_BU BEFORE UPDATE ON " + table + " BEGIN DELETE FROM " + index
+					+ " WHERE docid = old.rowid; END");
+			statement.executeUpdate("CREATE TRIGGER IF NOT EXISTS " + index + "_BD BEFORE DELETE ON " + table + " BEGIN DELETE FROM " + index
+					+ " WHERE docid = old.rowid; END");
+			statement.executeUpdate("CREATE TRIGGER IF NOT EXISTS " + index + "_AU AFTER UPDATE ON " + table + " BEGIN INSERT INTO " + index + "(docid, " + columns
+					+ ") VALUES (new.rowid, " + newValues + "); END");
+			statement.executeUpdate("CREATE TRIGGER IF NOT EXISTS " + index + "_AI AFTER INSERT ON " + table + " BEGIN INSERT INTO " + index + "(docid, " + columns
+					+ ") VALUES (new.rowid, " + newValues + "); END");
+		}
+	}
+
+	/**
+	 * Rows whose given attribute matches the given FTS query, e.g. <code>lodicity</code>, <code>"linked data"</code> or <code>data*</code>.
+	 */
+	static Criterion match(Class<? extends DataObject> dataObjectClass, String attribute, String query) {
+		return Restrictions.sqlRestriction("{alias}.HIBERNATEINTERNALID IN (SELECT docid FROM " + tableName(dataObjectClass) + " WHERE \"" + attribute + "\" MATCH ?)",
+				query, StringType.INSTANCE);
+	}
+
+	/**
+	 * Sorts rows by the number of matches of the given FTS query in the given attribute, most first.
+	 */
+	static class Rank extends Order {
+		private static final long serialVersionUID = 1L;
+
+		private final String index;
+		private final String query;
+
+		Rank(Class<? extends DataObject> dataObjectClass, String attribute, String query) {
+			super(attribute, false);
+			this.index = tableName(dataObjectClass);
+			this.query = query;
+		}
+
+		@Override
+		public String toSqlString(Criteria criteria, CriteriaQuery criteriaQuery) {
+			// offsets() lists four numbers per match, separated by spaces
+			String offsets = "offsets(" + index + ")";
+			return "(SELECT (length(" + offsets + ") - length(replace(" + offsets + ", ' ', '')) + 1) / 4 FROM " + index + " WHERE docid = "
+					+ criteriaQuery.getSQLAlias(criteria) + ".HIBERNATEINTERNALID AND \"" + getPropertyName() + "\" MATCH '" + query.replace("'", "''") + "') desc";
+		}
+	}
+}
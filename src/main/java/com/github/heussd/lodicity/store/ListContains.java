@@ -0,0 +1,35 @@
+package com.github.heussd.lodicity.store;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.sqlite.Function;
+import org.sqlite.core.Codes;
+
+import com.github.heussd.lodicity.model.ListCodec;
+
+/**
+ * SQL function <code>LIST_CONTAINS(column, value)</code>: Whether a column in the {@link ListCodec#BINARY} format holds an element equal to the given value. A plain byte
+ * search also matches the version byte, length prefixes or parts of other elements, so {@link Filter#eq(String, Object)} uses it to confirm what <code>instr()</code> has
+ * found.
+ */
+class ListContains extends Function {
+
+	static final String NAME = "LIST_CONTAINS";
+
+	/**
+	 * Registers the function on a connection. Instances keep the state of the current call, so each connection gets one of its own.
+	 */
+	static void register(Connection connection) throws SQLException {
+		Function.create(connection, NAME, new ListContains());
+	}
+
+	@Override
+	protected void xFunc() throws SQLException {
+		if (value_type(0) != Codes.SQLITE_BLOB) {
+			result(0);
+			return;
+		}
+		result(ListCodec.BINARY.decode(value_blob(0)).contains(value_text(1)) ? 1 : 0);
+	}
+}
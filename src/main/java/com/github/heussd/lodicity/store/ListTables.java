@@ -0,0 +1,262 @@
+package com.github.heussd.lodicity.store;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.heussd.lodicity.model.AttributeDescriptor;
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.DecodedList;
+import com.github.heussd.lodicity.model.ListCodec;
+import com.github.heussd.lodicity.model.ListStorage;
+import com.github.heussd.lodicity.model.Schema;
+
+/**
+ * Maintains the child tables of a type with {@link ListStorage#CHILD_TABLES}: One table <code>&lt;TYPE&gt;_&lt;ATTRIBUTE&gt;(OWNER_ID, POSITION, VALUE)</code> per list
+ * attribute, indexed on <code>VALUE</code>. The tables are written through JDBC next to Hibernate, after the owners have been flushed and have their id.
+ * <p>
+ * Writes in {@link ListStorage#COLUMN} mode do not maintain the tables, so they exist only while a type is in {@link ListStorage#CHILD_TABLES} mode, see
+ * {@link #drop(Connection, Class)}, and are rebuilt from the owner rows when they do not match them.
+ */
+class ListTables {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ListTables.class);
+
+	private final String table;
+	private final List<String> attributes = new ArrayList<>();
+
+	/**
+	 * List attributes of an owner that have to be written to the child tables.
+	 */
+	class Change {
+		private final DataObject owner;
+		private final List<String> attributes;
+
+		private Change(DataObject owner, List<String> attributes) {
+			this.owner = owner;
+			this.attributes = attributes;
+		}
+
+		private ListTables listTables() {
+			return ListTables.this;
+		}
+	}
+
+	ListTables(Class<? extends DataObject> dataObjectClass) {
+		this.table = dataObjectClass.getSimpleName().toUpperCase();
+		for (AttributeDescriptor attributeDescriptor : Schema.getTypeDescriptor(dataObjectClass).getAttributes()) {
+			if (attributeDescriptor.isListType())
+				attributes.add(attributeDescriptor.getName());
+		}
+	}
+
+	static String tableName(Class<? extends DataObject> dataObjectClass, String attribute) {
+		return dataObjectClass.getSimpleName().toUpperCase() + "_" + attribute.toUpperCase();
+	}
+
+	private String tableName(String attribute) {
+		return table + "_" + attribute.toUpperCase();
+	}
+
+	/**
+	 * Drops the child tables of the given type, e.g. when its rows are cleared or written in {@link ListStorage#COLUMN} mode.
+	 */
+	static void drop(Connection connection, Class<? extends DataObject> dataObjectClass) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			for (AttributeDescriptor attributeDescriptor : Schema.getTypeDescriptor(dataObjectClass).getAttributes()) {
+				if (attributeDescriptor.isListType())
+					statement.executeUpdate("DROP TABLE IF EXISTS " + tableName(dataObjectClass, attributeDescriptor.getName()));
+			}
+		}
+	}
+
+	/**
+	 * Creates missing child tables and fills them from the encoded columns of existing rows. Existing tables are rebuilt if they do not refer to exactly the rows that have
+	 * elements in the list column.
+	 */
+	void create(Connection connection, boolean clear) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			for (String attribute : attributes) {
+				String childTable = tableName(attribute);
+				if (clear)
+					statement.executeUpdate("DROP TABLE IF EXISTS " + childTable);
+
+				boolean exists;
+				try (ResultSet resultSet = statement.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name = '" + childTable + "'")) {
+					exists = resultSet.next();
+				}
+
+				if (exists && !matchesOwners(connection, attribute)) {
+					LOGGER.warn("Child table {} does not match {}, rebuilding it", childTable, table);
+					statement.executeUpdate("DROP TABLE " + childTable);
+					exists = false;
+				}
+
+				if (!exists) {
+					LOGGER.info("Creating child table {}", childTable);
+					statement.executeUpdate(
+							"CREATE TABLE " + childTable + " (OWNER_ID integer NOT NULL, POSITION integer NOT NULL, VALUE varchar(255), PRIMARY KEY (OWNER_ID, POSITION))");
+					statement.executeUpdate("CREATE INDEX IDX_" + childTable + "_VALUE ON " + childTable + " (VALUE)");
+					backfill(connection, attribute, -1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Whether the child table refers to existing owners only, and to as many as have a non-empty list. Rows that have been deleted and re-inserted with the same ids are not
+	 * noticed, which is why the tables are dropped together with the rows.
+	 */
+	private boolean matchesOwners(Connection connection, String attribute) throws SQLException {
+		String childTable = tableName(attribute);
+		try (PreparedStatement statement = connection.prepareStatement("SELECT (SELECT COUNT(*) FROM " + childTable + " WHERE OWNER_ID NOT IN (SELECT HIBERNATEINTERNALID FROM "
+				+ table + ")), (SELECT COUNT(DISTINCT OWNER_ID) FROM " + childTable + "), (SELECT COUNT(*) FROM " + table + " WHERE \"" + attribute + "\" IS NOT NULL AND \""
+				+ attribute + "\" NOT IN (?, ?))")) {
+			statement.setString(1, (String) ListCodec.JSON.encode(Collections.emptyList()));
+			statement.setBytes(2, (byte[]) ListCodec.BINARY.encode(Collections.emptyList()));
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getLong(1) == 0 && resultSet.getLong(2) == resultSet.getLong(3);
+			}
+		}
+	}
+
+	/**
+	 * Fills the child tables from the encoded columns of all rows with an id greater than the given one, e.g. after rows have been bulk inserted.
+	 */
+	void backfill(Connection connection, long afterId) throws SQLException {
+		for (String attribute : attributes) {
+			backfill(connection, attribute, afterId);
+		}
+	}
+
+	private void backfill(Connection connection, String attribute, long afterId) throws SQLException {
+		long rows = 0;
+		try (PreparedStatement select = connection.prepareStatement("SELECT HIBERNATEINTERNALID, \"" + attribute + "\" FROM " + table + " WHERE HIBERNATEINTERNALID > ?");
+				PreparedStatement insert = insertStatement(connection, attribute)) {
+			select.setLong(1, afterId);
+			try (ResultSet resultSet = select.executeQuery()) {
+				while (resultSet.next()) {
+					Object columnValue = resultSet.getObject(2);
+					if (columnValue != null) {
+						addElements(insert, resultSet.getLong(1), ListCodec.decodeColumn(columnValue));
+						rows++;
+					}
+				}
+			}
+			insert.executeBatch();
+		}
+		LOGGER.debug("Backfilled {} rows into {}", rows, tableName(attribute));
+	}
+
+	long maxId(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT IFNULL(MAX(HIBERNATEINTERNALID), -1) FROM " + table)) {
+			return resultSet.next() ? resultSet.getLong(1) : -1;
+		}
+	}
+
+	/**
+	 * Determines which lists of the given owner have to be written. Has to be called before the owner is flushed, as flushing marks decoded lists as clean.
+	 *
+	 * @return <code>null</code> if nothing has to be written
+	 */
+	Change changes(DataObject owner) {
+		boolean isNew = owner.getHibernateInternalId() == null;
+		List<String> changed = new ArrayList<>(attributes.size());
+
+		for (String attribute : attributes) {
+			Object value = owner.get((Object) attribute);
+			boolean unchanged = value instanceof DecodedList && !((DecodedList<?>) value).isModified() || value instanceof String || value instanceof byte[];
+			if (isNew || !unchanged)
+				changed.add(attribute);
+		}
+		return changed.isEmpty() ? null : new Change(owner, changed);
+	}
+
+	/**
+	 * Replaces the child rows of the given, already flushed owners. Statements are prepared once per child table.
+	 */
+	static void write(Connection connection, Collection<Change> changes) throws SQLException {
+		Map<String, PreparedStatement[]> statements = new HashMap<>();
+		Set<String> written = new HashSet<>();
+		try {
+			for (Change change : changes) {
+				long ownerId = Long.parseLong(change.owner.getHibernateInternalId());
+
+				for (String attribute : change.attributes) {
+					String childTable = change.listTables().tableName(attribute);
+					// An owner may have been persisted more than once since the last write
+					if (!written.add(childTable + "#" + ownerId))
+						continue;
+
+					PreparedStatement[] deleteAndInsert = statements.get(childTable);
+					if (deleteAndInsert == null) {
+						deleteAndInsert = new PreparedStatement[] { connection.prepareStatement("DELETE FROM " + childTable + " WHERE OWNER_ID = ?"),
+								change.listTables().insertStatement(connection, attribute) };
+						statements.put(childTable, deleteAndInsert);
+					}
+
+					deleteAndInsert[0].setLong(1, ownerId);
+					deleteAndInsert[0].addBatch();
+					addElements(deleteAndInsert[1], ownerId, change.owner.getWithoutValidation(attribute));
+				}
+			}
+
+			// All deletes first, so no old row collides with a new position
+			for (PreparedStatement[] deleteAndInsert : statements.values()) {
+				deleteAndInsert[0].executeBatch();
+			}
+			for (PreparedStatement[] deleteAndInsert : statements.values()) {
+				deleteAndInsert[1].executeBatch();
+			}
+		} finally {
+			for (PreparedStatement[] deleteAndInsert : statements.values()) {
+				deleteAndInsert[0].close();
+				deleteAndInsert[1].close();
+			}
+		}
+	}
+
+	/**
+	 * Removes the child rows of deleted owners.
+	 */
+	void delete(Connection connection, Collection<Long> ownerIds) throws SQLException {
+		for (String attribute : attributes) {
+			try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + tableName(attribute) + " WHERE OWNER_ID = ?")) {
+				for (long ownerId : ownerIds) {
+					delete.setLong(1, ownerId);
+					delete.addBatch();
+				}
+				delete.executeBatch();
+			}
+		}
+	}
+
+	private PreparedStatement insertStatement(Connection connection, String attribute) throws SQLException {
+		return connection.prepareStatement("INSERT INTO " + tableName(attribute) + " (OWNER_ID, POSITION, VALUE) VALUES (?, ?, ?)");
+	}
+
+	private static void addElements(PreparedStatement insert, long ownerId, List<?> elements) throws SQLException {
+		for (int position = 0; position < elements.size(); position++) {
+			Object element = elements.get(position);
+			insert.setLong(1, ownerId);
+			insert.setInt(2, position);
+			insert.setString(3, element == null ? null : element.toString());
+			insert.addBatch();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.github.heussd.lodicity.store;
+
+import java.io.Closeable;
+import java.lang.reflect.Constructor;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.DataObjectIterable;
+
+/**
+ * Cursor-backed counterpart of {@link DataObjectIterable}: Rows are pulled from a forward-only {@link ScrollableResults} and hydrated one at a time. Each row is evicted from
+ * the {@link Session} once it has been wrapped, so memory stays flat regardless of the result size. Must be closed to release the underlying JDBC cursor.
+ */
+public class ScrollableDataObjectIterable implements Iterable<DataObject>, Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ScrollableDataObjectIterable.class);
+
+	private Class<? extends DataObject> dataObjectClass;
+	private Session session;
+	private ScrollableResults results;
+	private Runnable onClose;
+	private Constructor<? extends DataObject> constructor;
+	private boolean iterated = false;
+	private boolean closed = false;
+
+	/**
+	 * @param onClose
+	 *            Run once the cursor is closed, e.g. to release what the cursor has been opened on
+	 */
+	ScrollableDataObjectIterable(Class<? extends DataObject> dataObjectClass, Session session, ScrollableResults results, Runnable onClose) {
+		this.dataObjectClass = dataObjectClass;
+		this.session = session;
+		this.results = results;
+		this.onClose = onClose;
+
+		try {
+			this.constructor = dataObjectClass.getDeclaredConstructor(java.util.Map.class);
+			this.constructor.setAccessible(true);
+		} catch (Exception e) {
+			close();
+			throw new RuntimeException(dataObjectClass.getSimpleName() + " must specify a constructor for java.util.Map.class", e);
+		}
+	}
+
+	@Override
+	public Iterator<DataObject> iterator() {
+		assert !iterated : "A scrollable result can only be iterated once";
+		iterated = true;
+
+		return new Iterator<DataObject>() {
+			private Boolean hasNext;
+
+			@Override
+			public boolean hasNext() {
+				if (hasNext == null)
+					hasNext = !closed && results.next();
+
+				if (!hasNext)
+					close();
+				return hasNext;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public DataObject next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				hasNext = null;
+
+				Map<String, Object> row = (Map<String, Object>) results.get(0);
+				try {
+					return constructor.newInstance(row);
+				} catch (Exception e) {
+					throw new RuntimeException("Could not create a new instance of " + dataObjectClass.getSimpleName() + " from row " + row, e);
+				} finally {
+					// Do not let the first-level cache grow with the result
+					session.evict(row);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Exposes the remaining rows as a sequential {@link Stream}. Closing the stream closes this cursor.
+	 */
+	public Stream<DataObject> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+	}
+
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+
+		LOGGER.debug("Closing cursor for {}", dataObjectClass.getSimpleName());
+		try {
+			results.close();
+		} finally {
+			onClose.run();
+		}
+	}
+}
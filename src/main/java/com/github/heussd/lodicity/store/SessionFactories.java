@@ -0,0 +1,138 @@
+package com.github.heussd.lodicity.store;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.hibernate.EntityMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.Environment;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.Schema;
+
+/**
+ * Process-wide cache of {@link SessionFactory}s by database URL and the set of mapped {@link DataObject} classes. Building a factory takes most of the time of constructing a
+ * {@link Warehouse}, but its mappings never change while the process runs.
+ */
+final class SessionFactories {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SessionFactories.class);
+
+	private static final Map<String, CachedFactory> FACTORIES = new ConcurrentHashMap<>();
+	private static Properties properties;
+
+	private static class CachedFactory {
+		final SessionFactory factory;
+		// Whether hbm2ddl has (re-)created the tables of all mappings, so they can be cleared by deleting their rows
+		final boolean created;
+
+		CachedFactory(SessionFactory factory, boolean created) {
+			this.factory = factory;
+			this.created = created;
+		}
+	}
+
+	private SessionFactories() {
+	}
+
+	/**
+	 * Properties of <code>hibernate.cfg.xml</code>, read once.
+	 */
+	static synchronized Properties properties() {
+		if (properties == null)
+			properties = new Configuration().configure().getProperties();
+		return properties;
+	}
+
+	/**
+	 * Returns the factory mapping the given classes. If <code>clear</code> is set, all tables of the factory are emptied, or created from scratch if the cached factory has not
+	 * created them.
+	 */
+	static synchronized SessionFactory get(Set<Class<? extends DataObject>> dataObjectClasses, boolean clear) throws Exception {
+		String url = properties().getProperty(Environment.URL);
+		Set<String> classNames = new TreeSet<>();
+		for (Class<? extends DataObject> dataObjectClass : dataObjectClasses)
+			classNames.add(dataObjectClass.getName());
+		String key = url + " " + classNames;
+
+		CachedFactory cachedFactory = FACTORIES.get(key);
+		if (cachedFactory != null && (!clear || cachedFactory.created)) {
+			LOGGER.debug("Re-using session factory for {}", key);
+			if (clear)
+				deleteAll(cachedFactory.factory);
+			return cachedFactory.factory;
+		}
+
+		long start = System.nanoTime();
+		Configuration configuration = new Configuration().configure();
+		configuration.setProperty(Environment.DEFAULT_ENTITY_MODE, EntityMode.MAP.toString());
+		configuration.setProperty(Environment.SHOW_SQL, "false");
+
+		if (clear) {
+			LOGGER.warn("Clear-Flag set, will erase existing data structures");
+			configuration.setProperty(Environment.HBM2DDL_AUTO, "create");
+		}
+
+		for (Class<? extends DataObject> dataObjectClass : dataObjectClasses) {
+			LOGGER.debug("Registering DataObject Type {}", dataObjectClass.getSimpleName());
+
+			// Make a Hibernate mapping based on Schema information
+			configuration.addInputStream(IOUtils.toInputStream(Schema.generateHibernateMapping(dataObjectClass), "UTF-8"));
+		}
+
+		SessionFactory factory = configuration.buildSessionFactory();
+		FACTORIES.put(key, new CachedFactory(factory, clear));
+		LOGGER.debug("Built session factory for {} in {} milliseconds", key, Math.round((System.nanoTime() - start) / 1000000d));
+		return factory;
+	}
+
+	private static void deleteAll(SessionFactory factory) throws SQLException, ClassNotFoundException {
+		LOGGER.warn("Clear-Flag set, will erase existing data");
+		try (Connection connection = openConnection(); Statement statement = connection.createStatement()) {
+			for (ClassMetadata classMetadata : factory.getAllClassMetadata().values()) {
+				statement.executeUpdate("DELETE FROM " + ((AbstractEntityPersister) classMetadata).getTableName());
+			}
+		}
+	}
+
+	/**
+	 * Opens a new connection to the configured database, with {@link ListContains} registered. A {@link Warehouse} keeps its session on one connection until it is closed,
+	 * so the connections are not pooled.
+	 */
+	static Connection openConnection() throws SQLException, ClassNotFoundException {
+		Class.forName(properties().getProperty(Environment.DRIVER));
+		Properties info = new Properties();
+		if (properties().getProperty(Environment.USER) != null)
+			info.setProperty("user", properties().getProperty(Environment.USER));
+		if (properties().getProperty(Environment.PASS) != null)
+			info.setProperty("password", properties().getProperty(Environment.PASS));
+		Connection connection = DriverManager.getConnection(properties().getProperty(Environment.URL), info);
+		ListContains.register(connection);
+		return connection;
+	}
+
+	/**
+	 * Opens a new read-only connection to the configured SQLite database, e.g. for reading a database in WAL mode while it is written.
+	 */
+	static Connection openReadOnlyConnection() throws SQLException, ClassNotFoundException {
+		Class.forName(properties().getProperty(Environment.DRIVER));
+		SQLiteConfig config = new SQLiteConfig();
+		config.setReadOnly(true);
+		Connection connection = DriverManager.getConnection(properties().getProperty(Environment.URL), config.toProperties());
+		ListContains.register(connection);
+		return connection;
+	}
+}
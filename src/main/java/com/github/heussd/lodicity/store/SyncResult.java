@@ -0,0 +1,40 @@
+package com.github.heussd.lodicity.store;
+
+/**
+ * Number of rows {@link Warehouse#synchronize} has inserted, updated, deleted or left unchanged.
+ */
+public class SyncResult {
+
+	private final long inserted;
+	private final long updated;
+	private final long deleted;
+	private final long unchanged;
+
+	SyncResult(long inserted, long updated, long deleted, long unchanged) {
+		this.inserted = inserted;
+		this.updated = updated;
+		this.deleted = deleted;
+		this.unchanged = unchanged;
+	}
+
+	public long getInserted() {
+		return inserted;
+	}
+
+	public long getUpdated() {
+		return updated;
+	}
+
+	public long getDeleted() {
+		return deleted;
+	}
+
+	public long getUnchanged() {
+		return unchanged;
+	}
+
+	@Override
+	public String toString() {
+		return inserted + " inserted, " + updated + " updated, " + deleted + " deleted, " + unchanged + " unchanged";
+	}
+}
@@ -1,35 +1,91 @@
 package com.github.heussd.lodicity.store;
 
 import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.apache.commons.io.IOUtils;
 import org.hibernate.Criteria;
-import org.hibernate.EntityMode;
+import org.hibernate.ScrollMode;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
-import org.hibernate.cfg.Configuration;
 import org.hibernate.cfg.Environment;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Disjunction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+import org.hibernate.transform.Transformers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.heussd.lodicity.data.MetaData;
 import com.github.heussd.lodicity.model.DataObject;
 import com.github.heussd.lodicity.model.DataObjectIterable;
+import com.github.heussd.lodicity.model.ListCodec;
+import com.github.heussd.lodicity.model.ListStorage;
 import com.github.heussd.lodicity.model.Schema;
-
+import com.github.heussd.lodicity.model.ValidationPolicy;
+
+/**
+ * Single-writer store on top of one SQLite connection. One instance may be shared by several threads, e.g. by {@link com.github.heussd.lodicity.data.LoadManager} running
+ * load chains in parallel, or by a service reading while a load is in progress:
+ * <ul>
+ * <li>Each thread works on a Hibernate session of its own, which lives until {@link #releaseSession()} or {@link #close()}, or until the thread has ended and another one
+ * opens a session. Objects cached by a session are dropped once another thread has written.</li>
+ * <li>All sessions share the connection of this Warehouse, so calls are funnelled through one lock, and {@link #openTransaction()} holds it until {@link #commit()} on the
+ * same thread.</li>
+ * <li>{@link #all(Class)}, {@link #forEach(Class, Consumer)}, {@link #query(Filter...)} and {@link #count(Filter...)} are safe to call concurrently. With
+ * {@link #enableConcurrentReaders(int)}, they do not wait for the lock.</li>
+ * <li>The cursor of {@link #scroll(Filter...)} must be consumed and closed by the thread that opened it. It holds the lock until it is closed, unless it runs on one of the
+ * connections of {@link #enableConcurrentReaders(int)}.</li>
+ * </ul>
+ */
 public class Warehouse implements Closeable {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(Warehouse.class);
+
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+	public static final int DEFAULT_BATCH_SIZE = 50;
+
 	private SessionFactory factory;
-	private Session session;
-	private Transaction transaction;
+	private Connection connection;
+	private BlockingQueue<Connection> readConnections;
+	private DataObjectInterceptor interceptor = new DataObjectInterceptor();
+	private final ThreadLocal<ThreadSession> sessions = new ThreadLocal<>();
+	private final List<ThreadSession> openSessions = new ArrayList<>();
+	// Incremented by every write, so the sessions of other threads drop what they have cached
+	private volatile long generation = 0;
+	private volatile boolean closed = false;
+	private int fetchSize = DEFAULT_FETCH_SIZE;
+	private int batchSize;
+	private ValidationPolicy validationPolicy;
+	private ListCodec listCodec = ListCodec.JSON;
+	private Map<Class<? extends DataObject>, ListTables> listTables = new HashMap<>();
+	private List<ListTables.Change> pendingListChanges = new ArrayList<>();
+	private final ReentrantLock writeLock = new ReentrantLock();
 
 	public Warehouse() {
 		this(false, DataObject.class);
@@ -43,7 +99,8 @@ public class Warehouse implements Closeable {
 	/**
 	 * 
 	 * @param clear
-	 *            Remove all existing structures (true) or re-use existing
+	 *            Remove all existing data of the given types (true) or re-use existing. Their tables are emptied, or created from scratch when the process has not
+	 *            created them yet, and their side tables are dropped: list child tables, the full-text index and the hashes of {@link #synchronize}.
 	 * @param dataObjectClasses
 	 */
 	@SafeVarargs
@@ -51,97 +108,630 @@ public class Warehouse implements Closeable {
 		LOGGER.debug("T.H. LODicity Warehouse");
 		java.util.logging.Logger.getLogger("org.hibernate").setLevel(Level.FINEST);
 		try {
-			Configuration configuration = new Configuration().configure();
-			configuration.setProperty(Environment.DEFAULT_ENTITY_MODE, EntityMode.MAP.toString());
-			configuration.setProperty(Environment.SHOW_SQL, "false");
-			configuration.setInterceptor(new DataObjectInterceptor());
+			Properties properties = SessionFactories.properties();
+			batchSize = Integer.parseInt(properties.getProperty(Environment.STATEMENT_BATCH_SIZE) != null ? properties.getProperty(Environment.STATEMENT_BATCH_SIZE)
+					: String.valueOf(DEFAULT_BATCH_SIZE));
 
-			if (clear) {
-				LOGGER.warn("Clear-Flag set, will erase existing data structures");
-				configuration.setProperty(Environment.HBM2DDL_AUTO, "create");
-			}
+			factory = SessionFactories.get(new HashSet<>(Arrays.asList(dataObjectClasses)), clear);
+			connection = SessionFactories.openConnection();
 
 			for (Class<? extends DataObject> dataObjectClass : dataObjectClasses) {
-				LOGGER.debug("Registering DataObject Type {}", dataObjectClass.getSimpleName());
-
-				// Make a Hibernate mapping based on Schema information
-				configuration.addInputStream(IOUtils.toInputStream(Schema.generateHibernateMapping(dataObjectClass), "UTF-8"));
+				if (Schema.getListStorage(dataObjectClass) == ListStorage.CHILD_TABLES)
+					listTables.put(dataObjectClass, new ListTables(dataObjectClass));
 			}
-
-			factory = configuration.buildSessionFactory();
-			session = factory.openSession();
+			Transaction transaction = session().beginTransaction();
+			session().doWork(connection -> {
+				// Also for existing databases, where hbm2ddl does not touch the tables
+				for (Class<? extends DataObject> dataObjectClass : dataObjectClasses) {
+					createIndexes(connection, dataObjectClass);
+					FullTextIndex.create(connection, dataObjectClass, clear);
+					if (clear)
+						DeltaTable.drop(connection, dataObjectClass);
+					// Child tables are not maintained in COLUMN mode, see ListTables
+					if (!listTables.containsKey(dataObjectClass))
+						ListTables.drop(connection, dataObjectClass);
+				}
+				for (ListTables tables : listTables.values())
+					tables.create(connection, clear);
+			});
+			transaction.commit();
 
 		} catch (Throwable e) {
 			throw new RuntimeException("Failed to create Warehouse", e);
 		}
 	}
 
+	/**
+	 * Creates the indexes declared in the Index column of the schema, unless they exist.
+	 */
+	private static void createIndexes(Connection connection, Class<? extends DataObject> dataObjectClass) throws SQLException {
+		String table = dataObjectClass.getSimpleName().toUpperCase();
+
+		try (Statement statement = connection.createStatement()) {
+			for (Entry<String, List<String>> index : Schema.getTypeDescriptor(dataObjectClass).getIndexes().entrySet()) {
+				String name = "IDX_" + table + "_" + index.getKey().toUpperCase().replaceAll("[^A-Z0-9_]", "_");
+				String columns = index.getValue().stream().map(column -> "\"" + column + "\"").collect(Collectors.joining(", "));
+
+				LOGGER.debug("Ensuring index {} on {} ({})", name, table, columns);
+				statement.executeUpdate("CREATE INDEX IF NOT EXISTS " + name + " ON " + table + " (" + columns + ")");
+			}
+		}
+	}
+
+	/**
+	 * Session of one thread, the write generation its first-level cache reflects and the number of objects written into it since it was last cleared.
+	 */
+	private static class ThreadSession {
+		final Thread thread = Thread.currentThread();
+		final Session session;
+		long generation;
+		int unflushed;
+
+		ThreadSession(Session session, long generation) {
+			this.session = session;
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * Returns the session of the current thread, which is opened on the connection of this Warehouse on first use. If another thread has written since, the objects cached by
+	 * the session are dropped, unless a transaction is open.
+	 */
+	private Session session() {
+		ThreadSession threadSession = sessions.get();
+		if (threadSession == null) {
+			assert !closed : "Warehouse is closed";
+			threadSession = new ThreadSession(factory.withOptions().interceptor(interceptor).connection(connection).openSession(), generation);
+			sessions.set(threadSession);
+			synchronized (openSessions) {
+				// Threads that have ended without releaseSession(), e.g. of a pool that has shrunk
+				for (Iterator<ThreadSession> iterator = openSessions.iterator(); iterator.hasNext();) {
+					ThreadSession openSession = iterator.next();
+					if (!openSession.thread.isAlive()) {
+						openSession.session.close();
+						iterator.remove();
+					}
+				}
+				openSessions.add(threadSession);
+			}
+		} else if (threadSession.generation != generation && threadSession.session.getTransaction().getStatus() != TransactionStatus.ACTIVE) {
+			threadSession.session.clear();
+			threadSession.generation = generation;
+			threadSession.unflushed = 0;
+		}
+		return threadSession.session;
+	}
+
+	/**
+	 * Records a write of the current thread, which holds the lock.
+	 */
+	private void written() {
+		sessions.get().generation = ++generation;
+	}
+
+	/**
+	 * Closes the session of the current thread, e.g. before a pooled thread is handed back. Sessions that are not released are closed by {@link #close()}, or once their
+	 * thread has ended and another thread opens a session.
+	 */
+	public void releaseSession() {
+		ThreadSession threadSession = sessions.get();
+		if (threadSession == null)
+			return;
+
+		writeLock.lock();
+		try {
+			assert threadSession.session.getTransaction().getStatus() != TransactionStatus.ACTIVE : "Cannot release a session within an open transaction";
+			sessions.remove();
+			synchronized (openSessions) {
+				openSessions.remove(threadSession);
+			}
+			threadSession.session.close();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
 	public void persist(DataObject... dataObjects) {
 		persist(Arrays.asList(dataObjects));
 	}
 
 	@SuppressWarnings("unchecked")
 	public Iterable<? extends DataObject> all(Class<? extends DataObject> dataObjectClass) {
-		return new DataObjectIterable(dataObjectClass, session.createCriteria(dataObjectClass).list());
+		return read(readSession -> new DataObjectIterable(dataObjectClass, readSession.createCriteria(dataObjectClass).list()));
+	}
+
+	/**
+	 * Streaming variant of {@link #all(Class)}: Rows are read through a forward-only cursor and hydrated one at a time. The returned iterable must be closed.
+	 */
+	public ScrollableDataObjectIterable scroll(Class<? extends DataObject> dataObjectClass) {
+		return scroll(new Filter(dataObjectClass));
+	}
+
+	/**
+	 * Streaming variant of {@link #query(Filter...)}: Rows are read through a forward-only cursor and hydrated one at a time. The returned iterable must be closed by the
+	 * thread that opened it.
+	 * <p>
+	 * With {@link #enableConcurrentReaders(int)}, the cursor runs on a read-only connection of its own. Otherwise it runs on the connection of this Warehouse, and other
+	 * threads cannot use the Warehouse until it is closed, as a commit or rollback on that connection would invalidate it.
+	 */
+	public ScrollableDataObjectIterable scroll(Filter... filters) {
+		assert filters.length != 0 : "At least one filter is required";
+		assert selection(filters) == null : "Projections cannot be scrolled, use query";
+
+		if (readConnections != null && !writeLock.isHeldByCurrentThread()) {
+			Connection readConnection = takeReadConnection();
+			Session readSession = openReadSession(readConnection);
+			Runnable release = () -> releaseReadSession(readSession, readConnection);
+			try {
+				return scroll(readSession, filters, release);
+			} catch (RuntimeException e) {
+				release.run();
+				throw e;
+			}
+		}
+
+		writeLock.lock();
+		try {
+			return scroll(session(), filters, writeLock::unlock);
+		} catch (RuntimeException e) {
+			writeLock.unlock();
+			throw e;
+		}
+	}
+
+	private ScrollableDataObjectIterable scroll(Session session, Filter[] filters, Runnable onClose) {
+		Criteria criteria = page(criteriaFromFilters(session, filters), filters);
+		criteria.setFetchSize(fetchSize);
+
+		LOGGER.debug("Opening cursor with critera {}, fetch size {}", criteria.toString(), fetchSize);
+		return new ScrollableDataObjectIterable(filters[0].getDataObjectClass(), session, criteria.scroll(ScrollMode.FORWARD_ONLY), onClose);
+	}
+
+	/**
+	 * Sets the JDBC fetch size used by {@link #scroll(Filter...)}.
+	 */
+	public void setFetchSize(int fetchSize) {
+		assert fetchSize > 0 : "Fetch size must be positive";
+		this.fetchSize = fetchSize;
 	}
 
 	public void forEach(Class<? extends DataObject> dataObjectClass, Consumer<? super DataObject> consumer) {
 		all(dataObjectClass).forEach(consumer);
 	}
 
+	/**
+	 * Number of sessions of threads that are open, including those of ended threads that have not been closed yet.
+	 */
+	int openSessions() {
+		synchronized (openSessions) {
+			return openSessions.size();
+		}
+	}
+
 	@Override
 	public void close() {
-		assert session != null : "Session is null";
-		assert session.isOpen() : "Session is not open";
-		session.close();
+		assert !closed : "Warehouse is closed";
+		writeLock.lock();
+		try {
+			closed = true;
+			synchronized (openSessions) {
+				for (ThreadSession threadSession : openSessions)
+					threadSession.session.close();
+				openSessions.clear();
+			}
+			connection.close();
+			if (readConnections != null) {
+				for (Connection readConnection : readConnections)
+					readConnection.close();
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException("Failed to close Warehouse", e);
+		} finally {
+			writeLock.unlock();
+		}
 	}
 
 	public void persist(List<? extends DataObject> dataObjects) {
-		assert session != null : "Session is null";
+		assert !closed : "Warehouse is closed";
 		assert dataObjects.size() != 0 : "No DataObject(s) given";
 		LOGGER.info("Persisting {} items...", dataObjects.size());
 
 		long start = System.nanoTime();
-		Transaction transaction = session.beginTransaction();
-		for (DataObject dataObject : dataObjects) {
+		writeLock.lock();
+		try {
+			Transaction transaction = session().beginTransaction();
+			ThreadSession threadSession = sessions.get();
+			try {
+				for (DataObject dataObject : dataObjects) {
+					validateBeforePersist(dataObject);
+					collectListChanges(dataObject);
+					session().saveOrUpdate(dataObject);
+
+					// Counted across calls, so loaders that persist one object at a time are bounded as well
+					if (++threadSession.unflushed >= batchSize) {
+						// Push the pending statements as one JDBC batch and keep the first-level cache constant in size
+						session().flush();
+						writeListChanges();
+						session().clear();
+						threadSession.unflushed = 0;
+					}
+				}
+				session().flush();
+				writeListChanges();
+				transaction.commit();
+				written();
+			} catch (RuntimeException e) {
+				rollback(transaction);
+				throw e;
+			}
+		} finally {
+			writeLock.unlock();
+		}
+		long end = System.nanoTime();
+
+		double milliseconds = (end - start) / 1000000d;
+		LOGGER.info("Persisted items in {} milliseconds ({} items/second)", Math.round(milliseconds),
+				Math.round(dataObjects.size() / Math.max(milliseconds, 1d) * 1000d));
+	}
+
+	/**
+	 * Sets the number of objects after which {@link #persist(List)} and {@link #update(DataObject)} flush and clear the session of the current thread, counted across calls.
+	 * Defaults to <code>hibernate.jdbc.batch_size</code>.
+	 */
+	public void setBatchSize(int batchSize) {
+		assert batchSize > 0 : "Batch size must be positive";
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Overrides the {@link ValidationPolicy} of all types for objects persisted through this Warehouse. <code>null</code> (the default) applies the policy of each type.
+	 */
+	public void setValidationPolicy(ValidationPolicy validationPolicy) {
+		this.validationPolicy = validationPolicy;
+	}
+
+	/**
+	 * Sets the format list attributes are written in from now on, {@link ListCodec#JSON} by default. Lists in either format are read regardless of this setting.
+	 */
+	public void setListCodec(ListCodec listCodec) {
+		assert listCodec != null : "ListCodec is null";
+		this.listCodec = listCodec;
+		interceptor.setListCodec(listCodec);
+	}
+
+	private void collectListChanges(DataObject dataObject) {
+		ListTables tables = listTables.get(dataObject.getClass());
+		if (tables != null) {
+			ListTables.Change change = tables.changes(dataObject);
+			if (change != null)
+				pendingListChanges.add(change);
+		}
+	}
+
+	/**
+	 * Writes the child tables of the owners collected since the last call. The owners must have been flushed.
+	 */
+	private void writeListChanges() {
+		if (pendingListChanges.isEmpty())
+			return;
+
+		session().doWork(connection -> ListTables.write(connection, pendingListChanges));
+		pendingListChanges.clear();
+	}
+
+	/**
+	 * Undoes a failed write of the current thread, which holds the lock. All sessions share one connection, so whatever has been flushed must not be left for the next commit
+	 * of another thread.
+	 */
+	private void rollback(Transaction transaction) {
+		try {
+			if (transaction.getStatus().canRollback())
+				transaction.rollback();
+		} finally {
+			session().clear();
+			sessions.get().unflushed = 0;
+			pendingListChanges.clear();
+		}
+	}
 
-			session.saveOrUpdate(dataObject);
+	private void validateBeforePersist(DataObject dataObject) {
+		// Storing a projection would erase the attributes it does not hold
+		if (dataObject.isReadOnly())
+			throw new RuntimeException("Cannot store a read-only view of \"" + dataObject.getClass().getSimpleName() + "\"");
+
+		ValidationPolicy policy = validationPolicy != null ? validationPolicy : dataObject.getValidationPolicy();
+		if (policy.validatesOnPersist())
+			dataObject.validate();
+	}
+
+	/**
+	 * Bulk-ingest path for {@link com.github.heussd.lodicity.data.Loader}s: Writes the given {@link DataObject}s straight into the table of the given type through raw JDBC,
+	 * bypassing Hibernate, the {@link DataObjectInterceptor} and schema validation.
+	 * 
+	 * @return Number of inserted rows
+	 */
+	public long bulkInsert(Class<? extends DataObject> dataObjectClass, Stream<? extends DataObject> dataObjects) {
+		assert !closed : "Warehouse is closed";
+		LOGGER.info("Bulk inserting {} items...", dataObjectClass.getSimpleName());
+
+		BulkInserter bulkInserter = new BulkInserter(dataObjectClass, listCodec);
+		ListTables tables = listTables.get(dataObjectClass);
+		long start = System.nanoTime();
+		long rows;
+		writeLock.lock();
+		try {
+			assert session().getTransaction().getStatus() != TransactionStatus.ACTIVE : "Cannot bulk insert within an open transaction";
+			rows = session().doReturningWork(connection -> {
+				long maxId = tables != null ? tables.maxId(connection) : -1;
+				long inserted = bulkInserter.insert(connection, dataObjects.iterator());
+				if (tables != null) {
+					tables.backfill(connection, maxId);
+					if (!connection.getAutoCommit())
+						connection.commit();
+				}
+				return inserted;
+			});
+			written();
+		} finally {
+			writeLock.unlock();
 		}
 		long end = System.nanoTime();
-		LOGGER.info("Persisted items in {} milliseconds", (end - start) / 100000);
-		transaction.commit();
+
+		double milliseconds = (end - start) / 1000000d;
+		LOGGER.info("Bulk inserted {} items in {} milliseconds ({} items/second)", rows, Math.round(milliseconds),
+				Math.round(rows / Math.max(milliseconds, 1d) * 1000d));
+		return rows;
+	}
+
+	/**
+	 * Incremental load: Makes the rows of the given type match the given {@link DataObject}s, identified by the given natural key, e.g. one made with
+	 * {@link DataObject#generateId(String...)}. A content hash per row is kept in a side table, so only rows that are new or differ are written, and rows whose key is not
+	 * given any more are deleted. Rows that have been written by other means than this method are not considered.
+	 */
+	public SyncResult synchronize(Class<? extends DataObject> dataObjectClass, Stream<? extends DataObject> dataObjects, Function<? super DataObject, String> naturalKey) {
+		assert !closed : "Warehouse is closed";
+		LOGGER.info("Synchronizing {} items...", dataObjectClass.getSimpleName());
+
+		DeltaTable deltaTable = new DeltaTable(dataObjectClass);
+		long inserted = 0, updated = 0, unchanged = 0;
+		long start = System.nanoTime();
+		writeLock.lock();
+		try {
+			assert session().getTransaction().getStatus() != TransactionStatus.ACTIVE : "Cannot synchronize within an open transaction";
+			Transaction transaction = session().beginTransaction();
+			try {
+				int unflushed = 0;
+				Map<String, DeltaTable.Row> stored = session().doReturningWork(deltaTable::read);
+				Set<String> seen = new HashSet<>();
+				List<DeltaTable.Row> written = new ArrayList<>();
+
+				Iterator<? extends DataObject> iterator = dataObjects.iterator();
+				while (iterator.hasNext()) {
+					DataObject dataObject = iterator.next();
+					String key = naturalKey.apply(dataObject);
+					if (!seen.add(key))
+						throw new RuntimeException("Duplicate natural key \"" + key + "\" in type \"" + dataObjectClass.getSimpleName() + "\"");
+
+					String hash = deltaTable.hash(dataObject);
+					DeltaTable.Row row = stored.remove(key);
+					if (row != null && row.hash.equals(hash)) {
+						unchanged++;
+						continue;
+					}
+
+					if (row == null) {
+						dataObject.setHibernateInternalId(null);
+						inserted++;
+					} else {
+						dataObject.setHibernateInternalId(String.valueOf(row.getOwnerId()));
+						updated++;
+					}
+					validateBeforePersist(dataObject);
+					collectListChanges(dataObject);
+					session().saveOrUpdate(dataObject);
+					written.add(new DeltaTable.Row(key, dataObject, hash));
+
+					if (++unflushed >= batchSize) {
+						session().flush();
+						writeListChanges();
+						session().doWork(connection -> deltaTable.write(connection, written));
+						written.clear();
+						session().clear();
+						unflushed = 0;
+					}
+				}
+				session().flush();
+				writeListChanges();
+				session().doWork(connection -> {
+					deltaTable.write(connection, written);
+					// Whatever has not been given any more
+					deltaTable.delete(connection, stored.values(), listTables.get(dataObjectClass));
+				});
+				transaction.commit();
+				written();
+				session().clear();
+				sessions.get().unflushed = 0;
+
+				SyncResult result = new SyncResult(inserted, updated, stored.size(), unchanged);
+				long end = System.nanoTime();
+				LOGGER.info("Synchronized {} in {} milliseconds: {}", dataObjectClass.getSimpleName(), Math.round((end - start) / 1000000d), result);
+				return result;
+			} catch (RuntimeException e) {
+				rollback(transaction);
+				throw e;
+			}
+		} finally {
+			writeLock.unlock();
+		}
 	}
 
 	public void update(DataObject dataObject) {
-		assert session != null : "Session is null";
+		assert !closed : "Warehouse is closed";
 		assert dataObject != null : "No DataObject given";
 
-		Transaction transaction = session.beginTransaction();
-		session.merge(dataObject);
-		transaction.commit();
+		validateBeforePersist(dataObject);
+		writeLock.lock();
+		try {
+			Transaction transaction = session().beginTransaction();
+			ThreadSession threadSession = sessions.get();
+			try {
+				collectListChanges(dataObject);
+				session().merge(dataObject);
+				session().flush();
+				writeListChanges();
+				transaction.commit();
+				written();
+				if (++threadSession.unflushed >= batchSize) {
+					session().clear();
+					threadSession.unflushed = 0;
+				}
+			} catch (RuntimeException e) {
+				rollback(transaction);
+				throw e;
+			}
+		} finally {
+			writeLock.unlock();
+		}
 	}
 
+	/**
+	 * Returns the objects matching all given filters, sorted, limited and paged as set on them, see {@link Filter#orderBy(String)}, {@link Filter#limit(int)},
+	 * {@link Filter#offset(int)} and {@link Filter#after(DataObject)}. If a filter {@link Filter#select(String...)}s attributes, read-only views of just these are returned.
+	 */
 	public Iterable<? extends DataObject> query(Filter... filters) {
 		assert filters.length != 0 : "At least one filter is required";
-		Criteria criteria = criteriaFromFilters(filters);
+		List<String> selection = selection(filters);
+		return read(readSession -> {
+			Criteria criteria = page(criteriaFromFilters(readSession, filters), filters);
+
+			if (selection != null) {
+				// Narrow SELECT of the requested columns, returned as maps instead of entities
+				ProjectionList projection = Projections.projectionList().add(Projections.id(), DataObject.HIBERNATE_INTERNAL_ID);
+				selection.forEach(attribute -> projection.add(Projections.property(attribute), attribute));
+				criteria.setProjection(projection).setResultTransformer(Transformers.ALIAS_TO_ENTITY_MAP);
+			}
 
-		LOGGER.debug("Firing query with critera {}", criteria.toString());
-		return new DataObjectIterable(filters[0].getDataObjectClass(), criteria.list());
+			LOGGER.debug("Firing query with critera {}", criteria.toString());
+			return new DataObjectIterable(filters[0].getDataObjectClass(), criteria.list(), selection != null);
+		});
 	}
 
 	public Long count(Class<? extends DataObject> dataObjectClass) {
 		return count(new Filter(dataObjectClass));
 	}
 
+	/**
+	 * Counts the objects matching all given filters. Their sorting, limit and paging are ignored.
+	 */
 	public Long count(Filter... filters) {
 		assert filters.length > 0 : "At least one filter is required";
-		Criteria criteria = criteriaFromFilters(filters);
+		return read(readSession -> {
+			Criteria criteria = criteriaFromFilters(readSession, filters);
+
+			LOGGER.debug("Firing query with critera {}", criteria.toString());
+			return (Long) criteria.setProjection(Projections.rowCount()).uniqueResult();
+		});
+	}
+
+	/**
+	 * Computes the given aggregation over the objects matching all given filters inside SQLite. Sorting, limits and paging of the filters are ignored.
+	 * 
+	 * @return One map per group, see {@link Aggregation}
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Map<String, Object>> aggregate(Aggregation aggregation, Filter... filters) {
+		assert aggregation.getProjection().getLength() > 0 : "Nothing to aggregate";
+		Filter[] criteriaFilters = filters.length > 0 ? filters : new Filter[] { new Filter(aggregation.getDataObjectClass()) };
+		assert criteriaFilters[0].getDataObjectClass() == aggregation.getDataObjectClass() : "Filters and aggregation differ in type";
+
+		return read(readSession -> {
+			Criteria criteria = criteriaFromFilters(readSession, criteriaFilters);
+			criteria.setProjection(aggregation.getProjection()).setResultTransformer(Transformers.ALIAS_TO_ENTITY_MAP);
+			aggregation.getGroups().forEach(group -> criteria.addOrder(Order.asc(group)));
+
+			LOGGER.debug("Firing aggregation with critera {}", criteria.toString());
+			return (List<Map<String, Object>>) criteria.list();
+		});
+	}
 
-		LOGGER.debug("Firing query with critera {}", criteria.toString());
-		return (Long) criteria.setProjection(Projections.rowCount()).uniqueResult();
+	/**
+	 * Switches the database to the WAL journal mode and opens the given number of read-only connections. From then on, {@link #all(Class)}, {@link #query(Filter...)},
+	 * {@link #count(Filter...)} and {@link #scroll(Filter...)} run on one of them instead of the connection of this Warehouse, so they are neither blocked by nor blocking writes, e.g. during a load. Reads
+	 * see the data committed when they start, not the changes of an open transaction.
+	 */
+	public void enableConcurrentReaders(int readers) {
+		assert readers > 0 : "At least one reader is required";
+		writeLock.lock();
+		try {
+			assert readConnections == null : "Concurrent readers are already enabled";
+			assert session().getTransaction().getStatus() != TransactionStatus.ACTIVE : "Cannot switch the journal mode within an open transaction";
+
+			session().doWork(connection -> {
+				try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("PRAGMA journal_mode=WAL")) {
+					resultSet.next();
+					if (!resultSet.getString(1).equalsIgnoreCase("wal"))
+						throw new SQLException("Database does not support WAL, journal mode is " + resultSet.getString(1));
+				}
+			});
+
+			readConnections = new ArrayBlockingQueue<>(readers);
+			for (int i = 0; i < readers; i++)
+				readConnections.add(SessionFactories.openReadOnlyConnection());
+			LOGGER.info("Enabled {} concurrent readers", readers);
+		} catch (SQLException | ClassNotFoundException e) {
+			throw new RuntimeException("Failed to enable concurrent readers", e);
+		} finally {
+			writeLock.unlock();
+		}
 	}
 
-	private Criteria criteriaFromFilters(Filter[] filters) {
+	/**
+	 * Runs the given read on a short-lived session over a pooled read-only connection, waiting for one to become free. Without concurrent readers, or if the current thread
+	 * holds the lock, e.g. within an open transaction, it runs on the session of the current thread.
+	 */
+	private <T> T read(Function<Session, T> work) {
+		if (readConnections == null || writeLock.isHeldByCurrentThread()) {
+			writeLock.lock();
+			try {
+				return work.apply(session());
+			} finally {
+				writeLock.unlock();
+			}
+		}
+
+		Connection readConnection = takeReadConnection();
+		Session readSession = openReadSession(readConnection);
+		try {
+			return work.apply(readSession);
+		} finally {
+			releaseReadSession(readSession, readConnection);
+		}
+	}
+
+	private Connection takeReadConnection() {
+		try {
+			return readConnections.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for a read connection", e);
+		}
+	}
+
+	private Session openReadSession(Connection readConnection) {
+		Session readSession = factory.withOptions().interceptor(interceptor).connection(readConnection).openSession();
+		readSession.setDefaultReadOnly(true);
+		return readSession;
+	}
+
+	private void releaseReadSession(Session readSession, Connection readConnection) {
+		try {
+			readSession.close();
+		} finally {
+			readConnections.add(readConnection);
+		}
+	}
+
+	private static Criteria criteriaFromFilters(Session session, Filter[] filters) {
 		Criteria criteria = session.createCriteria(filters[0].getDataObjectClass());
 		Arrays.asList(filters).forEach(filter -> {
 			Criterion criterion = filter.getCriterion();
@@ -151,37 +741,149 @@ public class Warehouse implements Closeable {
 		return criteria;
 	}
 
+	/**
+	 * Applies the sort keys of all given filters, in the order given, and the limit, offset and keyset cursor of the last filter that sets them.
+	 */
+	private static Criteria page(Criteria criteria, Filter[] filters) {
+		List<Order> orders = new ArrayList<>();
+		Integer limit = null, offset = null;
+		DataObject after = null;
+		for (Filter filter : filters) {
+			orders.addAll(filter.getOrders());
+			limit = filter.getLimit() != null ? filter.getLimit() : limit;
+			offset = filter.getOffset() != null ? filter.getOffset() : offset;
+			after = filter.getAfter() != null ? filter.getAfter() : after;
+		}
+
+		if (orders.isEmpty() && limit == null && offset == null && after == null)
+			return criteria;
+
+		if (after != null)
+			criteria.add(keyset(orders, after));
+
+		// Ties are broken by the id, so pages neither overlap nor skip rows
+		orders.forEach(criteria::addOrder);
+		criteria.addOrder(Order.asc(DataObject.HIBERNATE_INTERNAL_ID));
+
+		if (limit != null)
+			criteria.setMaxResults(limit);
+		if (offset != null)
+			criteria.setFirstResult(offset);
+		return criteria;
+	}
+
+	/**
+	 * Returns the attributes selected by the last filter that selects any, or <code>null</code> to read whole objects.
+	 */
+	private static List<String> selection(Filter[] filters) {
+		List<String> selection = null;
+		for (Filter filter : filters)
+			selection = filter.getSelection() != null ? filter.getSelection() : selection;
+		return selection;
+	}
+
+	/**
+	 * Matches the rows that follow the given one in the given order: <code>(a &gt; x) OR (a = x AND b &gt; y) OR (a = x AND b = y AND id &gt; z)</code>.
+	 */
+	private static Criterion keyset(List<Order> orders, DataObject after) {
+		Disjunction follows = Restrictions.disjunction();
+		List<Criterion> equal = new ArrayList<>();
+		for (Order order : orders) {
+			assert !(order instanceof FullTextIndex.Rank) : "Results ordered by relevance cannot be paged with after(), use offset()";
+			String field = order.getPropertyName();
+			Object value = after.getWithoutValidation(field);
+			assert value != null : "Cannot page after a null value of \"" + field + "\"";
+
+			List<Criterion> conjunction = new ArrayList<>(equal);
+			conjunction.add(order.isAscending() ? Restrictions.gt(field, value) : Restrictions.lt(field, value));
+			follows.add(Restrictions.and(conjunction.toArray(new Criterion[conjunction.size()])));
+			equal.add(Restrictions.eq(field, value));
+		}
+
+		equal.add(Restrictions.gt(DataObject.HIBERNATE_INTERNAL_ID, after.getHibernateInternalId()));
+		follows.add(Restrictions.and(equal.toArray(new Criterion[equal.size()])));
+		return follows;
+	}
+
+	/**
+	 * Starts a transaction for {@link #massUpdate(DataObject)}. Other threads are blocked until {@link #commit()} is called.
+	 */
 	public void openTransaction() {
-		this.transaction = session.beginTransaction();
+		writeLock.lock();
+		try {
+			session().beginTransaction();
+		} catch (RuntimeException e) {
+			writeLock.unlock();
+			throw e;
+		}
 	}
 
 	public void massUpdate(DataObject dataObject) {
-		assert session != null : "Session is null";
+		assert !closed : "Warehouse is closed";
 		assert dataObject != null : "No DataObject given";
-		assert this.transaction != null : "No transaction";
+		assert session().getTransaction().getStatus() == TransactionStatus.ACTIVE : "No transaction";
 
-		session.merge(dataObject);
+		validateBeforePersist(dataObject);
+		writeLock.lock();
+		try {
+			collectListChanges(dataObject);
+			session().merge(dataObject);
+		} finally {
+			writeLock.unlock();
+		}
 	}
 
 	public void commit() {
-		if (this.transaction != null)
-			this.transaction.commit();
+		try {
+			Transaction transaction = session().getTransaction();
+			if (transaction.getStatus() == TransactionStatus.ACTIVE) {
+				try {
+					session().flush();
+					writeListChanges();
+					transaction.commit();
+					written();
+				} catch (RuntimeException e) {
+					rollback(transaction);
+					throw e;
+				}
+			}
+		} finally {
+			// Release the lock taken by openTransaction()
+			if (writeLock.isHeldByCurrentThread())
+				writeLock.unlock();
+		}
 	}
 
 	public MetaData getMetaData(String identifer) {
-		List<MetaData> list = session.createQuery("FROM MetaData metaData WHERE metaData.dataSourceIdentifier= :identifier")
-				.setParameter("identifier", identifer).list();
-		if (list.size() > 0) {
-			return list.get(0);
-		} else {
-			return new MetaData(identifer);
+		writeLock.lock();
+		try {
+			List<MetaData> list = session().createQuery("FROM MetaData metaData WHERE metaData.dataSourceIdentifier= :identifier")
+					.setParameter("identifier", identifer).list();
+			if (list.size() > 0) {
+				return list.get(0);
+			} else {
+				return new MetaData(identifer);
+			}
+		} finally {
+			writeLock.unlock();
 		}
 	}
 
 	public void persistMetaData(MetaData metaData) {
-		Transaction t = session.beginTransaction();
-		session.saveOrUpdate(metaData);
-		t.commit();
+		writeLock.lock();
+		try {
+			Transaction transaction = session().beginTransaction();
+			try {
+				session().saveOrUpdate(metaData);
+				transaction.commit();
+				written();
+			} catch (RuntimeException e) {
+				rollback(transaction);
+				throw e;
+			}
+		} finally {
+			writeLock.unlock();
+		}
 	}
 
 }
@@ -0,0 +1,247 @@
+package com.github.heussd.lodicity.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.store.Warehouse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the downloads against a local HTTP server that supports ETags and range requests.
+ */
+public class DownloaderTest {
+
+	private static final String CONTENT = "Hello World, this is a resource of a CKAN dataset";
+	private static final String ETAG = "\"v1\"";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+	private String base;
+	private volatile String etag = ETAG;
+	// Answers range requests with the complete file, like a server that gets the range wrong
+	private volatile boolean ignoreRange = false;
+
+	private AtomicInteger fullResponses = new AtomicInteger();
+	private AtomicInteger partialResponses = new AtomicInteger();
+	private AtomicInteger notModifiedResponses = new AtomicInteger();
+	private AtomicInteger inFlight = new AtomicInteger();
+	private AtomicInteger maxInFlight = new AtomicInteger();
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/files/", this::serveFile);
+		server.createContext("/api/3/action/package_show", exchange -> {
+			String json = "{\"success\": true, \"result\": {\"metadata_modified\": \"2016-01-01T00:00:00\", \"resources\": [" + resource("r1", "r1.csv", "CSV") + ", " + resource("r2", "r2", "JSON") + ", "
+					+ resource("r3", "r3", "") + "]}}";
+			respond(exchange, 200, json.getBytes(StandardCharsets.UTF_8));
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		base = "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	private String resource(String id, String path, String format) {
+		return "{\"id\": \"" + id + "\", \"format\": \"" + format + "\", \"url\": \"" + base + "/files/" + path + "\"}";
+	}
+
+	private void serveFile(HttpExchange exchange) throws IOException {
+		int concurrent = inFlight.incrementAndGet();
+		maxInFlight.accumulateAndGet(concurrent, Math::max);
+		try {
+			Thread.sleep(100);
+			byte[] content = CONTENT.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("ETag", etag);
+
+			String range = exchange.getRequestHeaders().getFirst("Range");
+			if (exchange.getRequestMethod().equals("HEAD")) {
+				exchange.getResponseHeaders().add("Content-Length", String.valueOf(content.length));
+				exchange.sendResponseHeaders(200, -1);
+				exchange.close();
+			} else if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				notModifiedResponses.incrementAndGet();
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+			} else if (range != null && etag.equals(exchange.getRequestHeaders().getFirst("If-Range"))) {
+				partialResponses.incrementAndGet();
+				int from = ignoreRange ? 0 : Integer.parseInt(range.replaceAll("bytes=(\\d+)-", "$1"));
+				exchange.getResponseHeaders().add("Content-Range", "bytes " + from + "-" + (content.length - 1) + "/" + content.length);
+				byte[] rest = new byte[content.length - from];
+				System.arraycopy(content, from, rest, 0, rest.length);
+				respond(exchange, 206, rest);
+			} else {
+				fullResponses.incrementAndGet();
+				respond(exchange, 200, content);
+			}
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} finally {
+			inFlight.decrementAndGet();
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Leftovers of an interrupted download of the first ten bytes of r1.
+	 */
+	private void writeInterruptedDownload(URL url) throws IOException {
+		try (OutputStream out = new FileOutputStream(new File(folder.getRoot(), "r1.part"))) {
+			out.write(CONTENT.substring(0, 10).getBytes(StandardCharsets.UTF_8));
+		}
+		Properties meta = new Properties();
+		meta.setProperty("url", url.toString());
+		meta.setProperty("etag", ETAG);
+		try (OutputStream out = new FileOutputStream(new File(folder.getRoot(), "r1.meta"))) {
+			meta.store(out, null);
+		}
+	}
+
+	@Test
+	public void testCachedDownload() throws Exception {
+		Downloader downloader = new Downloader(folder.getRoot(), 1);
+		URL url = new URL(base + "/files/r1");
+
+		File file = downloader.download("r1", url);
+		assertEquals(CONTENT, read(file));
+		assertEquals(1, fullResponses.get());
+
+		assertEquals(file, downloader.download("r1", url));
+		assertEquals("Unchanged file was transferred again", 1, fullResponses.get());
+		assertEquals(1, notModifiedResponses.get());
+		assertEquals(CONTENT, read(file));
+	}
+
+	@Test
+	public void testResume() throws Exception {
+		URL url = new URL(base + "/files/r1");
+
+		writeInterruptedDownload(url);
+
+		File file = new Downloader(folder.getRoot(), 1).download("r1", url);
+		assertEquals(CONTENT, read(file));
+		assertEquals(1, partialResponses.get());
+		assertEquals(0, fullResponses.get());
+		assertTrue(!new File(folder.getRoot(), "r1.part").exists());
+	}
+
+	@Test
+	public void testResumeIgnoredRange() throws Exception {
+		URL url = new URL(base + "/files/r1");
+		writeInterruptedDownload(url);
+
+		ignoreRange = true;
+		File file = new Downloader(folder.getRoot(), 1).download("r1", url);
+		assertEquals("Wrong range was appended", CONTENT, read(file));
+		assertEquals(1, partialResponses.get());
+		assertEquals(1, fullResponses.get());
+	}
+
+	@Test
+	public void testCKANDataSource() throws Exception {
+		CKANDataSource ckanDataSource = new CKANDataSource(base + "/dataset/test");
+		ckanDataSource.setCacheDirectory(folder.getRoot());
+		ckanDataSource.setParallelism(3);
+
+		List<File> files = ckanDataSource.getLocalFiles();
+		assertEquals(3, files.size());
+		// Named with the extension of the URL or else the format, so they can be read
+		assertEquals("r1.csv", files.get(0).getName());
+		assertEquals(RecordReader.CSV, RecordReader.forFile(files.get(0)));
+		assertEquals("r2.json", files.get(1).getName());
+		assertEquals(RecordReader.JSON_LINES, RecordReader.forFile(files.get(1)));
+		assertEquals("r3", files.get(2).getName());
+		for (File file : files)
+			assertEquals(CONTENT, read(file));
+		assertTrue("Resources were not downloaded concurrently", maxInFlight.get() > 1);
+
+		ckanDataSource.getLocalFiles();
+		assertEquals(3, fullResponses.get());
+		assertEquals(3, notModifiedResponses.get());
+	}
+
+	@Test
+	public void testCurrentnessToken() throws Exception {
+		DownloadableDataSource dataSource = new DownloadableDataSource(base + "/files/r1");
+
+		String token = dataSource.getCurrentnessToken();
+		assertEquals(token, dataSource.getCurrentnessToken());
+		assertTrue(token.contains("length=" + CONTENT.length()));
+		assertEquals("Checking currentness transferred the file", 0, fullResponses.get());
+
+		etag = "\"v2\"";
+		assertFalse(token.equals(dataSource.getCurrentnessToken()));
+	}
+
+	@Test
+	public void testCKANCurrentnessToken() throws Exception {
+		CKANDataSource ckanDataSource = new CKANDataSource(base + "/dataset/test");
+
+		String token = ckanDataSource.getCurrentnessToken();
+		assertEquals(token, ckanDataSource.getCurrentnessToken());
+		assertTrue(token.startsWith("2016-01-01T00:00:00"));
+		assertEquals(0, fullResponses.get());
+	}
+
+	@Test
+	public void testUnchangedSourceIsNotLoaded() throws Exception {
+		DownloadableDataSource dataSource = new DownloadableDataSource(base + "/files/r1");
+		dataSource.setCacheDirectory(folder.getRoot());
+		AtomicInteger loads = new AtomicInteger();
+		Loader loader = new Loader(dataSource) {
+			@Override
+			public void loadInto(Warehouse warehouse) {
+				dataSource.getLocalFiles();
+				loads.incrementAndGet();
+			}
+		};
+
+		try (Warehouse warehouse = new Warehouse(true, DataObject.class)) {
+			for (int run = 0; run < 2; run++) {
+				LoadManager loadManager = new LoadManager(warehouse);
+				loadManager.register(loader);
+				loadManager.loadAll();
+			}
+		}
+		assertEquals(1, loads.get());
+		assertEquals(1, fullResponses.get());
+	}
+}
@@ -1,6 +1,14 @@
 package com.github.heussd.lodicity.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -35,6 +43,71 @@ public class LoadManagerTest {
 		}
 	}
 
+	class NamedDataSource extends DataSource {
+		private final String identifier;
+
+		NamedDataSource(String identifier) {
+			this.identifier = identifier;
+		}
+
+		@Override
+		public String getCurrentnessToken() {
+			return identifier + "-1";
+		}
+
+		@Override
+		public String getIdentifer() {
+			return identifier;
+		}
+
+		@Override
+		public List<File> getLocalFiles() {
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * Waits until all loaders sharing the latch have started, which only succeeds if they run concurrently.
+	 */
+	class RendezvousLoader extends Loader {
+		private final CountDownLatch latch;
+		boolean metOthers;
+
+		public RendezvousLoader(CountDownLatch latch, DataSource dataSource) {
+			super(dataSource);
+			this.latch = latch;
+		}
+
+		@Override
+		public void loadInto(Warehouse warehouse) {
+			latch.countDown();
+			try {
+				metOthers = latch.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			warehouse.persist(WarehouseTest.makeCompanionDataObject());
+		}
+	}
+
+	class RecordingLoader extends Loader {
+		private final List<String> log;
+		private final String name;
+
+		public RecordingLoader(List<String> log, String name, DataSource dataSource) {
+			super(dataSource);
+			this.log = log;
+			this.name = name;
+		}
+
+		@Override
+		public void loadInto(Warehouse warehouse) {
+			synchronized (log) {
+				log.add(name);
+			}
+		}
+	}
+
 	DataSource fileDataSource = null;
 
 	public LoadManagerTest() {
@@ -72,4 +145,33 @@ public class LoadManagerTest {
 		warehouse.close();
 
 	}
+
+	@Test
+	public void testParallelLoad() {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+
+		CountDownLatch latch = new CountDownLatch(2);
+		RendezvousLoader a = new RendezvousLoader(latch, new NamedDataSource("a"));
+		RendezvousLoader b = new RendezvousLoader(latch, new NamedDataSource("b"));
+
+		// Both chains depend on "shared", so they must run in order of registration
+		List<String> log = new ArrayList<>();
+		DataSource shared = new NamedDataSource("shared");
+
+		LoadManager loadManager = new LoadManager(warehouse);
+		loadManager.setParallelism(4);
+		loadManager.register(a);
+		loadManager.register(b);
+		loadManager.register(new RecordingLoader(log, "first", shared));
+		loadManager.register(new RecordingLoader(log, "second", shared), new RecordingLoader(log, "third", new NamedDataSource("c")));
+		loadManager.loadAll();
+
+		assertTrue("Independent chains did not run concurrently", a.metOthers && b.metOthers);
+		assertEquals(new Long(2), warehouse.count(DataObject.class));
+		assertEquals("Chains sharing a data source ran out of order", "[first, second, third]", log.toString());
+		assertEquals("shared-1", warehouse.getMetaData("shared").currentnessToken);
+		assertEquals("c-1", warehouse.getMetaData("c").currentnessToken);
+
+		warehouse.close();
+	}
 }
@@ -0,0 +1,153 @@
+package com.github.heussd.lodicity.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.heussd.lodicity.model.DataObject;
+
+public class RecordReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File write(String name, String content) throws IOException {
+		File file = new File(folder.getRoot(), name);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static List<DataObject> records(DataSource dataSource) {
+		try (Stream<DataObject> records = dataSource.records(DataObject.class)) {
+			return records.collect(Collectors.toList());
+		}
+	}
+
+	private static void assertCompanion(DataObject dataObject) {
+		assertEquals("Hello, \"World\"\nagain", dataObject.get("string"));
+		assertEquals(new Float(1.5F), dataObject.<Float> get("float"));
+		assertEquals(new Integer(42), dataObject.get("integer"));
+		assertEquals(Boolean.TRUE, dataObject.get("boolean"));
+		assertEquals(Arrays.asList("a", "b"), dataObject.get("stringList"));
+		assertFalse(dataObject.containsKey("unknown"));
+	}
+
+	@Test
+	public void testCsv() throws Exception {
+		File file = write("records.csv", "string,float,integer,boolean,stringList,unknown\r\n" //
+				+ "\"Hello, \"\"World\"\"\nagain\",1.5,42,true,\"[\"\"a\"\",\"\"b\"\"]\",x\r\n" //
+				+ "\r\n" //
+				+ "Second,,,,c,\r\n");
+
+		List<DataObject> records = records(new LocalFileDataSource(file.getPath()));
+		assertEquals(2, records.size());
+		assertCompanion(records.get(0));
+		assertEquals("Second", records.get(1).get("string"));
+		assertNull(records.get(1).get("float"));
+		assertEquals(Arrays.asList("c"), records.get(1).get("stringList"));
+	}
+
+	@Test
+	public void testInvalidValues() throws Exception {
+		// Neither truncated to 2 nor read as false
+		for (String record : new String[] { "integer\n2.7\n", "boolean\nyes\n" }) {
+			File file = write("invalid.csv", record);
+			try {
+				records(new LocalFileDataSource(file.getPath()));
+				fail("Invalid value accepted: " + record);
+			} catch (RuntimeException e) {
+			}
+		}
+
+		File file = write("valid.csv", "integer,boolean\n42.0,TRUE\n");
+		DataObject dataObject = records(new LocalFileDataSource(file.getPath())).get(0);
+		assertEquals(new Integer(42), dataObject.get("integer"));
+		assertEquals(Boolean.TRUE, dataObject.get("boolean"));
+	}
+
+	@Test
+	public void testJsonLines() throws Exception {
+		File file = write("records.jsonl",
+				"{\"string\": \"Hello, \\\"World\\\"\\nagain\", \"float\": 1.5, \"integer\": 42, \"boolean\": true, \"stringList\": [\"a\", \"b\"], \"unknown\": 1}\n" //
+						+ "\n" //
+						+ "{\"string\": \"Second\", \"float\": null}\n");
+
+		List<DataObject> records = records(new LocalFileDataSource(file.getPath()));
+		assertEquals(2, records.size());
+		assertCompanion(records.get(0));
+		assertNull(records.get(1).get("float"));
+	}
+
+	@Test
+	public void testXlsx() throws Exception {
+		File file = new File(folder.getRoot(), "records.xlsx");
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = new FileOutputStream(file)) {
+			Sheet sheet = workbook.createSheet();
+			Row header = sheet.createRow(0);
+			String[] columns = { "string", "float", "integer", "boolean", "stringList", "unknown" };
+			for (int i = 0; i < columns.length; i++)
+				header.createCell(i).setCellValue(columns[i]);
+
+			Row row = sheet.createRow(1);
+			row.createCell(0).setCellValue("Hello, \"World\"\nagain");
+			row.createCell(1).setCellValue(1.5);
+			row.createCell(2).setCellValue(42);
+			row.createCell(3).setCellValue(true);
+			row.createCell(4).setCellValue("[\"a\",\"b\"]");
+			row.createCell(5).setCellValue("x");
+
+			// Gaps between rows and cells
+			sheet.createRow(5).createCell(4).setCellValue("c");
+			workbook.write(out);
+		}
+
+		List<DataObject> records = records(new LocalFileDataSource(file.getPath()));
+		assertEquals(2, records.size());
+		assertCompanion(records.get(0));
+		assertNull(records.get(1).get("string"));
+		assertEquals(Arrays.asList("c"), records.get(1).get("stringList"));
+	}
+
+	@Test
+	public void testSchemaWorkbook() throws Exception {
+		try (Stream<Map<String, Object>> records = RecordReader.XLSX.read(new File(getClass().getResource("/lodicity.schema.xlsx").toURI()))) {
+			Map<String, Object> first = records.findFirst().get();
+			assertEquals("client", first.get("Attribute"));
+			assertEquals("byClient", first.get("Index"));
+		}
+	}
+
+	@Test
+	public void testDirectory() throws Exception {
+		write("a.csv", "string\nfirst\nsecond\n");
+		write("b.jsonl", "{\"string\": \"third\"}\n");
+
+		LocalFileDataSource dataSource = new LocalFileDataSource(folder.getRoot().getPath());
+		assertEquals(2, dataSource.getLocalFiles().size());
+		assertEquals(Arrays.asList("first", "second", "third"), records(dataSource).stream().map(dataObject -> dataObject.get("string")).collect(Collectors.toList()));
+
+		try (Stream<DataObject> records = dataSource.records(DataObject.class)) {
+			assertEquals("first", records.findFirst().get().get("string"));
+		}
+	}
+}
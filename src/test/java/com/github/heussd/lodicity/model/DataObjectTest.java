@@ -0,0 +1,193 @@
+package com.github.heussd.lodicity.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+
+public class DataObjectTest {
+
+	private DataObject makeDataObject() {
+		DataObject dataObject = new DataObject();
+		dataObject.set("string", "Hello World");
+		dataObject.set("float", 1F);
+		dataObject.set("stringList", new ArrayList<>(Arrays.asList("Hello", "World")));
+		return dataObject;
+	}
+
+	@Test
+	public void testMapContract() {
+		DataObject dataObject = makeDataObject();
+
+		assertEquals(4, dataObject.size());
+		assertEquals("DataObject", dataObject.get("_class_"));
+		assertTrue(dataObject.containsKey("string"));
+		assertFalse(dataObject.containsKey("integer"));
+
+		HashMap<String, Object> copy = new HashMap<>(dataObject);
+		assertEquals(copy, dataObject);
+		assertEquals(dataObject, copy);
+		assertEquals(copy.hashCode(), dataObject.hashCode());
+
+		dataObject.put("integer", null);
+		assertTrue(dataObject.containsKey("integer"));
+		assertNull(dataObject.get("integer"));
+		assertEquals(5, dataObject.size());
+
+		assertEquals("Hello World", dataObject.remove("string"));
+		assertFalse(dataObject.containsKey("string"));
+		assertEquals(4, dataObject.size());
+
+		dataObject.hibernateInternalId = "1";
+		assertEquals("1", dataObject.get(DataObject.HIBERNATE_INTERNAL_ID));
+		assertEquals(5, dataObject.size());
+
+		dataObject.clear();
+		assertTrue(dataObject.isEmpty());
+	}
+
+	@Test
+	public void testEntrySet() {
+		DataObject dataObject = makeDataObject();
+
+		for (Entry<String, Object> entry : dataObject.entrySet()) {
+			if (entry.getKey().equals("string"))
+				entry.setValue("Changed");
+		}
+		assertEquals("Changed", dataObject.get("string"));
+
+		Iterator<Entry<String, Object>> iterator = dataObject.entrySet().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getKey().equals("float"))
+				iterator.remove();
+		}
+		assertFalse(dataObject.containsKey("float"));
+		assertEquals(3, dataObject.size());
+	}
+
+	@Test
+	public void testSerialization() throws Exception {
+		DataObject dataObject = makeDataObject();
+		// Starts the iteration with an attribute
+		dataObject.remove("_class_");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(dataObject);
+		}
+
+		DataObject deserialized;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			deserialized = (DataObject) in.readObject();
+		}
+		// Iterated before anything else touches the schema
+		Map<String, Object> entries = new HashMap<>();
+		for (Entry<String, Object> entry : deserialized.entrySet())
+			entries.put(entry.getKey(), entry.getValue());
+		assertEquals(new HashMap<>(dataObject), entries);
+	}
+
+	@Test
+	public void testReadOnlyEntrySet() {
+		DataObject dataObject = makeDataObject().readOnly();
+
+		for (Entry<String, Object> entry : dataObject.entrySet()) {
+			try {
+				entry.setValue("Changed");
+				fail("Read-only views cannot be changed");
+			} catch (UnsupportedOperationException e) {
+			}
+		}
+		Iterator<Entry<String, Object>> iterator = dataObject.entrySet().iterator();
+		iterator.next();
+		try {
+			iterator.remove();
+			fail("Read-only views cannot be changed");
+		} catch (UnsupportedOperationException e) {
+		}
+		assertEquals("Hello World", dataObject.get("string"));
+		assertEquals(4, dataObject.size());
+	}
+
+	@Test
+	public void testCopyConstructor() {
+		Map<String, Object> row = new HashMap<>();
+		row.put("$type$", "DataObject");
+		row.put(DataObject.HIBERNATE_INTERNAL_ID, "42");
+		row.put("string", "Hello World");
+		row.put("stringList", "[\"Hello\",\"World\"]");
+
+		DataObject dataObject = new DataObject(row);
+		assertEquals(3, dataObject.size());
+		assertFalse(dataObject.containsKey("$type$"));
+		assertEquals("42", dataObject.getHibernateInternalId());
+		assertEquals(Arrays.asList("Hello", "World"), dataObject.<List<String>> get("stringList"));
+	}
+
+	@Test
+	public void testDecodeListsOnce() {
+		Map<String, Object> row = new HashMap<>();
+		row.put("stringList", "[\"Hello\",\"World\"]");
+		DataObject dataObject = new DataObject(row);
+
+		List<String> stringList = dataObject.get("stringList");
+		assertTrue(stringList == dataObject.get("stringList"));
+		assertTrue(stringList instanceof DecodedList);
+
+		DecodedList<String> decodedList = (DecodedList<String>) stringList;
+		for (String string : decodedList) {
+			assertTrue(string.length() > 0);
+		}
+		assertFalse(decodedList.isModified());
+		assertEquals("[\"Hello\",\"World\"]", decodedList.getSource());
+
+		decodedList.add("Again");
+		assertTrue(decodedList.isModified());
+		assertEquals(Arrays.asList("Hello", "World", "Again"), dataObject.get("stringList"));
+	}
+
+	@Test
+	public void testListCodecs() {
+		List<String> list = Arrays.asList("Hello", null, "", "nasty characters äöü! \"[]\"", new String(new char[300]).replace('\0', 'x'));
+
+		for (ListCodec listCodec : Arrays.asList(ListCodec.JSON, ListCodec.BINARY)) {
+			Object columnValue = listCodec.encode(list);
+			assertEquals(list.subList(2, 5), ListCodec.decodeColumn(columnValue).subList(2, 5));
+		}
+		assertEquals(null, ListCodec.decodeColumn(ListCodec.BINARY.encode(list)).get(1));
+	}
+
+	@Test
+	public void testUnknownAttributes() {
+		class UnknownType extends DataObject {
+			private static final long serialVersionUID = 1L;
+		}
+
+		UnknownType dataObject = new UnknownType();
+		dataObject.put("anything", "value", false);
+		Map<String, Object> map = dataObject;
+		assertEquals("value", map.get("anything"));
+		assertEquals("UnknownType", map.get("_class_"));
+		assertEquals(2, dataObject.size());
+
+		for (Entry<String, Object> entry : dataObject.entrySet()) {
+			if (entry.getKey().equals("anything"))
+				entry.setValue("changed");
+		}
+		assertEquals("changed", map.get("anything"));
+	}
+}
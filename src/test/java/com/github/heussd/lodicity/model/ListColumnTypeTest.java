@@ -0,0 +1,43 @@
+package com.github.heussd.lodicity.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.Test;
+
+import com.github.heussd.lodicity.store.DataObjectInterceptor;
+
+public class ListColumnTypeTest {
+
+	/**
+	 * Binds a plain list, as for an entity that has not passed the interceptor, and returns the bound values by setter name.
+	 */
+	private static Map<String, Object> bind(DataObjectInterceptor interceptor, List<String> list) throws Exception {
+		Map<String, Object> bound = new HashMap<>();
+		PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(ListColumnTypeTest.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+				(proxy, method, args) -> bound.put(method.getName(), args[1]));
+		SessionImplementor session = (SessionImplementor) Proxy.newProxyInstance(ListColumnTypeTest.class.getClassLoader(), new Class<?>[] { SessionImplementor.class },
+				(proxy, method, args) -> method.getName().equals("getInterceptor") ? interceptor : null);
+
+		new ListColumnType().nullSafeSet(statement, list, 1, session);
+		return bound;
+	}
+
+	@Test
+	public void testPlainListsUseConfiguredCodec() throws Exception {
+		List<String> list = Arrays.asList("Hello", "World");
+		DataObjectInterceptor interceptor = new DataObjectInterceptor();
+		assertEquals(ListCodec.JSON.encode(list), bind(interceptor, list).get("setString"));
+
+		interceptor.setListCodec(ListCodec.BINARY);
+		assertArrayEquals((byte[]) ListCodec.BINARY.encode(list), (byte[]) bind(interceptor, list).get("setBytes"));
+	}
+}
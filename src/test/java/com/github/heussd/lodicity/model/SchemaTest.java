@@ -1,10 +1,15 @@
 package com.github.heussd.lodicity.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.json.JSONArray;
 import org.junit.Test;
@@ -129,6 +134,26 @@ public class SchemaTest {
 		Schema.isValid(makeCompanionDataObject(), "boolean", "totally not a boolean value");
 	}
 
+	@Test
+	public void testTypeDescriptor() {
+		TypeDescriptor typeDescriptor = Schema.getTypeDescriptor(DataObject.class);
+		assertEquals("DataObject", typeDescriptor.getName());
+		assertEquals(Schema.getAttributes("DataObject").size(), typeDescriptor.size());
+
+		AttributeDescriptor stringList = typeDescriptor.getAttribute("stringList");
+		assertEquals(stringList, typeDescriptor.getAttribute(typeDescriptor.ordinalOf("stringList")));
+		assertEquals(true, stringList.isListType());
+		assertEquals(DataType.STRING, stringList.getDataType());
+
+		AttributeDescriptor client = typeDescriptor.getAttribute("client");
+		assertEquals(false, client.isListType());
+		assertEquals(true, client.getValues().contains("ULB"));
+		assertEquals(DataType.FLOAT, typeDescriptor.getAttribute("float").getDataType());
+
+		assertEquals(-1, typeDescriptor.ordinalOf("totally random attribute that does not exist"));
+		assertEquals(true, Schema.getAttribute(new DataObject(), "string").isOptional());
+	}
+
 	@Test
 	public void testMandatory() {
 		class StrictType extends DataObject {
@@ -136,4 +161,54 @@ public class SchemaTest {
 		}
 		Schema.isValid(new StrictType(), "musthavestring", null);
 	}
+
+	@Test
+	public void testValidationPolicy() {
+		assertEquals(ValidationPolicy.ON_WRITE, new DataObject().getValidationPolicy());
+
+		try {
+			new DataObject().set("boolean", "totally not a boolean value");
+			fail("Invalid value was accepted on write");
+		} catch (RuntimeException e) {
+			// Expected
+		}
+
+		Schema.setValidationPolicy(DataObject.class, ValidationPolicy.NONE);
+		try {
+			DataObject dataObject = new DataObject();
+			dataObject.set("boolean", "totally not a boolean value");
+			assertEquals("totally not a boolean value", dataObject.get("boolean"));
+		} finally {
+			Schema.setValidationPolicy(DataObject.class, ValidationPolicy.ON_WRITE);
+		}
+	}
+
+	@Test
+	public void testIndexes() {
+		Map<String, List<String>> indexes = Schema.getTypeDescriptor(DataObject.class).getIndexes();
+		assertEquals(Arrays.asList("string"), indexes.get("string"));
+		assertEquals(Arrays.asList("client", "integer"), indexes.get("byClient"));
+		assertEquals(2, indexes.size());
+	}
+
+	@Test
+	public void testFullText() {
+		assertEquals(Arrays.asList("string"), Schema.getTypeDescriptor(DataObject.class).getFullTextAttributes());
+		assertTrue(Schema.getAttribute(DataObject.class, "string").isFullText());
+		assertEquals(false, Schema.getAttribute(DataObject.class, "client").isFullText());
+	}
+
+	@Test
+	public void testStreamingWorkbookReader() throws Exception {
+		File file = new File(getClass().getResource("/lodicity.schema.xlsx").toURI());
+		Map<String, List<String[]>> expected = SchemaWorkbookReader.readWorkbook(file);
+		Map<String, List<String[]>> actual = SchemaWorkbookReader.readStreaming(file);
+
+		assertEquals(expected.keySet(), actual.keySet());
+		for (String sheet : expected.keySet()) {
+			assertEquals(expected.get(sheet).size(), actual.get(sheet).size());
+			for (int row = 0; row < expected.get(sheet).size(); row++)
+				assertTrue(sheet + " row " + row, Arrays.equals(expected.get(sheet).get(row), actual.get(sheet).get(row)));
+		}
+	}
 }
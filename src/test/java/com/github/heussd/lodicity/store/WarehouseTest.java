@@ -1,15 +1,38 @@
 package com.github.heussd.lodicity.store;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 
 import com.github.heussd.lodicity.data.MetaData;
 import com.github.heussd.lodicity.model.DataObject;
+import com.github.heussd.lodicity.model.ListCodec;
+import com.github.heussd.lodicity.model.ListStorage;
+import com.github.heussd.lodicity.model.Schema;
+import com.github.heussd.lodicity.model.ValidationPolicy;
 
 public class WarehouseTest {
 
@@ -43,6 +66,175 @@ public class WarehouseTest {
 		warehouse.close();
 	}
 
+	@Test
+	public void testScroll() {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		warehouse.persist(makeCompanionDataObject(), makeCompanionDataObject(), makeCompanionDataObject());
+		warehouse.setFetchSize(2);
+
+		int counter = 0;
+		try (ScrollableDataObjectIterable dataObjects = warehouse.scroll(DataObject.class)) {
+			for (DataObject dataObject : dataObjects) {
+				assertEquals(COMPANION_STRING, dataObject.<String> get("string"));
+				counter++;
+			}
+		}
+		assertEquals(3, counter);
+
+		Filter filter = new Filter(DataObject.class);
+		try (ScrollableDataObjectIterable dataObjects = warehouse.scroll(filter.eq("string", "does not exist"))) {
+			assertEquals(0, dataObjects.stream().count());
+		}
+
+		warehouse.close();
+	}
+
+	@Test
+	public void testBatchedPersist() {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		warehouse.setBatchSize(50);
+
+		List<DataObject> dataObjects = new ArrayList<>();
+		for (int i = 0; i < 120; i++) {
+			dataObjects.add(makeCompanionDataObject());
+		}
+		warehouse.persist(dataObjects);
+
+		assertEquals(new Long(120), warehouse.count(DataObject.class));
+		warehouse.forEach(DataObject.class, dataObject -> {
+			assertEquals("World", dataObject.get("stringList", 1));
+		});
+		warehouse.close();
+	}
+
+	@Test
+	public void testBatchedSinglePersists() throws SQLException {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		warehouse.setBatchSize(2);
+
+		// The session keeps what it has written until the batch is full, also across calls
+		DataObject first = makeKeyedDataObject("a", 1F);
+		warehouse.persist(first);
+		changeStrings("changed");
+		assertEquals(Arrays.asList("a"), strings(warehouse));
+		warehouse.persist(makeKeyedDataObject("b", 2F));
+		assertEquals(Arrays.asList("changed", "b"), strings(warehouse));
+
+		warehouse.update(first);
+		changeStrings("changed again");
+		assertEquals(Arrays.asList("a", "b"), strings(warehouse));
+		first.set("string", "c");
+		warehouse.update(first);
+		assertEquals(Arrays.asList("c", "changed again"), strings(warehouse));
+		warehouse.close();
+	}
+
+	private static void changeStrings(String string) throws SQLException {
+		// Behind the back of the session
+		try (Connection connection = DriverManager.getConnection("jdbc:sqlite:warehouse.db"); Statement statement = connection.createStatement()) {
+			statement.executeUpdate("UPDATE DATAOBJECT SET STRING = '" + string + "'");
+		}
+	}
+
+	private static List<String> strings(Warehouse warehouse) {
+		List<String> strings = new ArrayList<>();
+		warehouse.forEach(DataObject.class, dataObject -> strings.add(dataObject.get("string")));
+		return strings;
+	}
+
+	@Test
+	public void testFailedPersistRollsBack() throws Exception {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		warehouse.setBatchSize(2);
+		warehouse.setValidationPolicy(ValidationPolicy.ON_PERSIST);
+
+		List<DataObject> dataObjects = new ArrayList<>();
+		for (int i = 0; i < 5; i++)
+			dataObjects.add(makeCompanionDataObject());
+		// Fails after two periodic flushes
+		dataObjects.get(4).put("boolean", "totally not a boolean value", false);
+		try {
+			warehouse.persist(dataObjects);
+			fail("Invalid objects must not be persisted");
+		} catch (RuntimeException e) {
+		}
+		assertEquals(new Long(0), warehouse.count(DataObject.class));
+
+		// The next commit of another thread must not carry the flushed rows
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		executor.submit(() -> {
+			warehouse.persist(makeCompanionDataObject());
+			warehouse.releaseSession();
+		}).get();
+		executor.shutdown();
+		assertEquals(new Long(1), warehouse.count(DataObject.class));
+
+		warehouse.persist(makeCompanionDataObject(), makeCompanionDataObject(), makeCompanionDataObject());
+		assertEquals(new Long(4), warehouse.count(DataObject.class));
+		warehouse.close();
+	}
+
+	@Test
+	public void testBulkInsert() {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+
+		long rows = warehouse.bulkInsert(DataObject.class, IntStream.range(0, 500).mapToObj(i -> {
+			DataObject dataObject = makeCompanionDataObject();
+			dataObject.set("integer", i);
+			dataObject.set("boolean", true);
+			return dataObject;
+		}));
+		assertEquals(500, rows);
+		assertEquals(new Long(500), warehouse.count(DataObject.class));
+
+		Filter filter = new Filter(DataObject.class);
+		warehouse.query(filter.eq("integer", 42)).forEach(dataObject -> {
+			assertEquals(COMPANION_STRING, dataObject.<String> get("string"));
+			assertEquals(1F, dataObject.<Float> get("float"), 0F);
+			assertEquals(true, dataObject.<Boolean> get("boolean"));
+			assertEquals("World", dataObject.get("stringList", 1));
+		});
+		assertEquals(new Long(1), warehouse.count(filter.eq("stringList", "Hello"), filter.eq("integer", 42)));
+
+		warehouse.close();
+	}
+
+	@Test
+	public void testBulkInsertUnsetList() throws SQLException {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		for (ListCodec listCodec : Arrays.asList(ListCodec.JSON, ListCodec.BINARY)) {
+			warehouse.setListCodec(listCodec);
+			warehouse.bulkInsert(DataObject.class, Stream.of(new DataObject()));
+		}
+		warehouse.persist(new DataObject());
+		warehouse.close();
+
+		// Stored as NULL, like Hibernate does
+		try (Connection connection = DriverManager.getConnection("jdbc:sqlite:warehouse.db"); Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM DATAOBJECT WHERE STRINGLIST IS NULL")) {
+			assertEquals(3, resultSet.getInt(1));
+		}
+	}
+
+	@Test
+	public void testIsNullList() {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		Filter filter = new Filter(DataObject.class);
+		warehouse.persist(makeCompanionDataObject());
+		warehouse.persist(new DataObject());
+		for (ListCodec listCodec : Arrays.asList(ListCodec.JSON, ListCodec.BINARY)) {
+			warehouse.setListCodec(listCodec);
+			DataObject dataObject = new DataObject();
+			dataObject.set("stringList", new ArrayList<>());
+			warehouse.persist(dataObject);
+		}
+
+		// Unset and empty lists alike
+		assertEquals(new Long(3), warehouse.count(filter.isNull("stringList")));
+		assertEquals(new Long(1), warehouse.count(filter.not(filter.isNull("stringList"))));
+		warehouse.close();
+	}
+
 	@Test
 	public void testSimpleTypePersistence() {
 		SimpleType simpleType = new SimpleType();
@@ -346,4 +538,587 @@ public class WarehouseTest {
 
 		new Warehouse(UnknownType.class);
 	}
+
+	@Test(expected = RuntimeException.class)
+	public void testValidateOnPersist() {
+		Warehouse warehouse = null;
+		try {
+			warehouse = new Warehouse(true, DataObject.class);
+			warehouse.setValidationPolicy(ValidationPolicy.ON_PERSIST);
+
+			DataObject dataObject = makeCompanionDataObject();
+			dataObject.put("boolean", "totally not a boolean value", false);
+			warehouse.persist(dataObject);
+		} finally {
+			warehouse.close();
+		}
+	}
+
+	@Test
+	public void testBinaryListCodec() {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		warehouse.persist(makeCompanionDataObject());
+		warehouse.setListCodec(ListCodec.BINARY);
+		warehouse.persist(makeCompanionDataObject());
+		warehouse.close();
+
+		// Read both formats back from the database instead of the session cache
+		warehouse = new Warehouse(false, DataObject.class);
+		int counter = 0;
+		for (DataObject dataObject : warehouse.all(DataObject.class)) {
+			List<String> stringList = dataObject.get("stringList");
+			assertEquals(Arrays.asList("Hello", "World"), stringList);
+			counter++;
+		}
+		assertEquals(2, counter);
+
+		Filter filter = new Filter(DataObject.class);
+		assertEquals(new Long(2), warehouse.count(filter.eq("stringList", "World")));
+		assertEquals(new Long(0), warehouse.count(filter.eq("stringList", "Worl")));
+
+		// Only whole elements match, not the version byte, a length prefix or parts of other elements
+		String longElement = "0123456789012345678901234567890123";
+		DataObject dataObject = new DataObject();
+		dataObject.set("stringList", new ArrayList<>(Arrays.asList(longElement, "a\u0002b")));
+		warehouse.setListCodec(ListCodec.BINARY);
+		warehouse.persist(dataObject);
+		assertEquals(new Long(1), warehouse.count(filter.eq("stringList", longElement)));
+		assertEquals(new Long(0), warehouse.count(filter.eq("stringList", "")));
+		assertEquals(new Long(0), warehouse.count(filter.eq("stringList", "#")));
+		assertEquals(new Long(0), warehouse.count(filter.eq("stringList", "b")));
+		warehouse.close();
+	}
+
+	@Test
+	public void testListChildTables() throws SQLException {
+		// Leave child tables of an earlier run behind, they must not survive a clear
+		Schema.setListStorage(DataObject.class, ListStorage.CHILD_TABLES);
+		try {
+			Warehouse warehouse = new Warehouse(true, DataObject.class);
+			warehouse.persist(Arrays.asList(makeKeyedDataObject("Stale", 1F), makeKeyedDataObject("Stale", 2F)));
+			warehouse.close();
+		} finally {
+			Schema.setListStorage(DataObject.class, ListStorage.COLUMN);
+		}
+
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		warehouse.persist(makeCompanionDataObject());
+		warehouse.close();
+
+		Schema.setListStorage(DataObject.class, ListStorage.CHILD_TABLES);
+		try {
+			// Child tables are created and filled for an existing database
+			warehouse = new Warehouse(false, DataObject.class);
+			Filter filter = new Filter(DataObject.class);
+			assertEquals(new Long(1), warehouse.count(filter.eq("stringList", "Hello")));
+			assertEquals(new Long(0), warehouse.count(filter.eq("stringList", "Stale")));
+
+			warehouse.persist(makeCompanionDataObject());
+			DataObject other = new DataObject();
+			other.set("stringList", new ArrayList<>(Arrays.asList("Foo")));
+			warehouse.persist(other);
+			assertEquals(new Long(2), warehouse.count(filter.eq("stringList", "Hello")));
+			assertEquals(new Long(0), warehouse.count(filter.eq("stringList", "Hell")));
+			assertEquals(new Long(1), warehouse.count(filter.eq("stringList", "Foo")));
+
+			other.<List<String>> get("stringList").set(0, "Hello");
+			warehouse.update(other);
+			assertEquals(new Long(3), warehouse.count(filter.eq("stringList", "Hello")));
+			assertEquals(new Long(0), warehouse.count(filter.eq("stringList", "Foo")));
+
+			warehouse.bulkInsert(DataObject.class, Stream.of(makeCompanionDataObject()));
+			assertEquals(new Long(4), warehouse.count(filter.eq("stringList", "Hello")));
+			warehouse.close();
+
+			// Child tables that do not match their owners are rebuilt
+			try (Connection connection = DriverManager.getConnection("jdbc:sqlite:warehouse.db"); Statement statement = connection.createStatement()) {
+				statement.executeUpdate("DELETE FROM DATAOBJECT_STRINGLIST WHERE OWNER_ID = 1");
+			}
+			warehouse = new Warehouse(false, DataObject.class);
+			assertEquals(new Long(4), warehouse.count(filter.eq("stringList", "Hello")));
+			warehouse.close();
+		} finally {
+			Schema.setListStorage(DataObject.class, ListStorage.COLUMN);
+		}
+	}
+
+	@Test
+	public void testSchemaIndexes() throws SQLException {
+		new Warehouse(true, DataObject.class).close();
+		assertEquals(Arrays.asList("IDX_DATAOBJECT_BYCLIENT", "IDX_DATAOBJECT_STRING"), indexes());
+
+		// Missing indexes are added to existing databases
+		try (Connection connection = DriverManager.getConnection("jdbc:sqlite:warehouse.db"); Statement statement = connection.createStatement()) {
+			statement.executeUpdate("DROP INDEX IDX_DATAOBJECT_STRING");
+		}
+		new Warehouse(false, DataObject.class).close();
+		assertEquals(Arrays.asList("IDX_DATAOBJECT_BYCLIENT", "IDX_DATAOBJECT_STRING"), indexes());
+	}
+
+	private static DataObject makeKeyedDataObject(String key, float value) {
+		DataObject dataObject = new DataObject();
+		dataObject.set("string", key);
+		dataObject.set("float", value);
+		dataObject.set("stringList", new ArrayList<>(Arrays.asList(key)));
+		return dataObject;
+	}
+
+	@Test
+	public void testSynchronize() {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+
+		SyncResult result = warehouse.synchronize(DataObject.class,
+				Stream.of(makeKeyedDataObject("a", 1F), makeKeyedDataObject("b", 2F), makeKeyedDataObject("c", 3F)), dataObject -> dataObject.get("string"));
+		assertEquals(3, result.getInserted());
+		assertEquals(new Long(3), warehouse.count(DataObject.class));
+
+		result = warehouse.synchronize(DataObject.class, Stream.of(makeKeyedDataObject("a", 1F), makeKeyedDataObject("b", 20F), makeKeyedDataObject("d", 4F)),
+				dataObject -> dataObject.get("string"));
+		assertEquals(1, result.getUnchanged());
+		assertEquals(1, result.getUpdated());
+		assertEquals(1, result.getInserted());
+		assertEquals(1, result.getDeleted());
+
+		assertEquals(new Long(3), warehouse.count(DataObject.class));
+		assertEquals(new Long(0), warehouse.count(new Filter(DataObject.class).eq("string", "c")));
+		for (DataObject b : warehouse.query(new Filter(DataObject.class).eq("string", "b")))
+			assertEquals(20F, ((Number) b.get("float")).floatValue(), 0F);
+		warehouse.close();
+
+		// Hashes survive the session
+		warehouse = new Warehouse(DataObject.class);
+		result = warehouse.synchronize(DataObject.class, Stream.of(makeKeyedDataObject("a", 1F), makeKeyedDataObject("b", 20F), makeKeyedDataObject("d", 4F)),
+				dataObject -> dataObject.get("string"));
+		assertEquals(3, result.getUnchanged());
+		warehouse.close();
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testSynchronizeDuplicateKey() {
+		try (Warehouse warehouse = new Warehouse(true, DataObject.class)) {
+			warehouse.synchronize(DataObject.class, Stream.of(makeKeyedDataObject("a", 1F), makeKeyedDataObject("a", 2F)), dataObject -> dataObject.get("string"));
+		}
+	}
+
+	private List<String> indexes() throws SQLException {
+		List<String> indexes = new ArrayList<>();
+		try (Connection connection = DriverManager.getConnection("jdbc:sqlite:warehouse.db");
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement
+						.executeQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = 'DATAOBJECT' AND sql IS NOT NULL ORDER BY name")) {
+			while (resultSet.next())
+				indexes.add(resultSet.getString(1));
+		}
+		return indexes;
+	}
+
+	@Test
+	public void testSessionFactoryCache() throws Exception {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		warehouse.persist(makeCompanionDataObject());
+		warehouse.close();
+
+		// Re-uses the factory, and each open Warehouse has a connection of its own
+		warehouse = new Warehouse(DataObject.class);
+		Warehouse other = new Warehouse(DataObject.class);
+		assertEquals(new Long(1), warehouse.count(DataObject.class));
+		assertEquals(new Long(1), other.count(DataObject.class));
+		other.close();
+		warehouse.close();
+
+		assertSame(SessionFactories.get(new HashSet<>(Arrays.asList(DataObject.class)), false),
+				SessionFactories.get(new HashSet<>(Arrays.asList(DataObject.class)), false));
+
+		// Clearing with a cached factory deletes all rows
+		warehouse = new Warehouse(true, DataObject.class);
+		assertEquals(new Long(0), warehouse.count(DataObject.class));
+		warehouse.close();
+
+		// ... and drops the side tables, whose rows would refer to ids that are handed out again
+		Schema.setListStorage(DataObject.class, ListStorage.CHILD_TABLES);
+		try {
+			Filter filter = new Filter(DataObject.class);
+			warehouse = new Warehouse(true, DataObject.class);
+			warehouse.synchronize(DataObject.class, Stream.of(makeKeyedDataObject("linked", 1F)), dataObject -> dataObject.get("string"));
+			warehouse.close();
+
+			warehouse = new Warehouse(true, DataObject.class);
+			assertEquals(new Long(0), warehouse.count(filter.match("string", "linked")));
+			warehouse.bulkInsert(DataObject.class, Stream.of(makeKeyedDataObject("open", 2F)));
+			assertEquals(new Long(0), warehouse.count(filter.eq("stringList", "linked")));
+			assertEquals(new Long(1), warehouse.count(filter.eq("stringList", "open")));
+			assertEquals(1, warehouse.synchronize(DataObject.class, Stream.of(makeKeyedDataObject("linked", 1F)), dataObject -> dataObject.get("string")).getInserted());
+			warehouse.close();
+		} finally {
+			Schema.setListStorage(DataObject.class, ListStorage.COLUMN);
+		}
+	}
+
+	@Test
+	public void testConcurrentReaders() throws Exception {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		warehouse.enableConcurrentReaders(2);
+		warehouse.persist(makeCompanionDataObject());
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			warehouse.openTransaction();
+			warehouse.massUpdate(makeCompanionDataObject());
+
+			// Not blocked by the open transaction, and not seeing it
+			assertEquals(new Long(1), executor.submit(() -> warehouse.count(DataObject.class)).get(10, TimeUnit.SECONDS));
+			int[] read = new int[1];
+			executor.submit(() -> warehouse.query(new Filter(DataObject.class)).forEach(dataObject -> read[0]++)).get(10, TimeUnit.SECONDS);
+			assertEquals(1, read[0]);
+
+			warehouse.commit();
+			assertEquals(new Long(2), executor.submit(() -> warehouse.count(DataObject.class)).get(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdown();
+			warehouse.close();
+		}
+	}
+
+	@Test
+	public void testScrollWhileWriting() throws Exception {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		warehouse.persist(makeCompanionDataObject(), makeCompanionDataObject(), makeCompanionDataObject());
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			// The cursor runs on the shared connection, so writes wait until it is closed
+			Future<?> write;
+			int counter = 0;
+			try (ScrollableDataObjectIterable dataObjects = warehouse.scroll(DataObject.class)) {
+				write = executor.submit(() -> warehouse.persist(makeCompanionDataObject()));
+				try {
+					write.get(200, TimeUnit.MILLISECONDS);
+					fail("Writes must wait for the cursor");
+				} catch (TimeoutException e) {
+				}
+				for (DataObject dataObject : dataObjects) {
+					assertEquals(COMPANION_STRING, dataObject.get("string"));
+					counter++;
+				}
+			}
+			assertEquals(3, counter);
+			write.get(10, TimeUnit.SECONDS);
+
+			// On a read connection, it does not block writes
+			warehouse.enableConcurrentReaders(1);
+			counter = 0;
+			try (ScrollableDataObjectIterable dataObjects = warehouse.scroll(DataObject.class)) {
+				executor.submit(() -> warehouse.persist(makeCompanionDataObject())).get(10, TimeUnit.SECONDS);
+				for (@SuppressWarnings("unused")
+				DataObject dataObject : dataObjects)
+					counter++;
+			}
+			assertEquals(4, counter);
+			assertEquals(new Long(5), warehouse.count(DataObject.class));
+		} finally {
+			executor.shutdown();
+			warehouse.close();
+		}
+	}
+
+	@Test
+	public void testParallelReads() throws Exception {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		for (int i = 0; i < 10; i++)
+			warehouse.persist(makeCompanionDataObject());
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < 8; thread++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 20; i++) {
+						assertTrue(warehouse.count(DataObject.class) >= 10);
+						int[] read = new int[1];
+						warehouse.forEach(DataObject.class, dataObject -> read[0]++);
+						assertTrue(read[0] >= 10);
+					}
+				}));
+			}
+			// Writes in between
+			futures.add(executor.submit(() -> warehouse.persist(makeCompanionDataObject(), makeCompanionDataObject())));
+
+			for (Future<?> future : futures)
+				future.get(60, TimeUnit.SECONDS);
+			assertEquals(new Long(12), warehouse.count(DataObject.class));
+		} finally {
+			executor.shutdown();
+			warehouse.close();
+		}
+	}
+
+	@Test
+	public void testThreadSessions() throws Exception {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		DataObject dataObject = makeCompanionDataObject();
+		warehouse.persist(dataObject);
+
+		ExecutorService reader = Executors.newSingleThreadExecutor();
+		try {
+			Callable<String> read = () -> {
+				String string = null;
+				for (DataObject d : warehouse.all(DataObject.class))
+					string = d.get("string");
+				return string;
+			};
+			assertEquals(COMPANION_STRING, reader.submit(read).get(10, TimeUnit.SECONDS));
+
+			// The reading thread does not keep what its session has cached before
+			dataObject.set("string", "changed");
+			warehouse.update(dataObject);
+			assertEquals("changed", reader.submit(read).get(10, TimeUnit.SECONDS));
+
+			reader.submit(warehouse::releaseSession).get(10, TimeUnit.SECONDS);
+			assertEquals("changed", reader.submit(read).get(10, TimeUnit.SECONDS));
+		} finally {
+			reader.shutdown();
+			warehouse.close();
+		}
+	}
+
+	@Test
+	public void testSessionsOfEndedThreads() throws Exception {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		for (int i = 0; i < 3; i++) {
+			Thread thread = new Thread(() -> warehouse.count(DataObject.class));
+			thread.start();
+			thread.join();
+		}
+		// The session of the main thread, and the one of the last thread, which has not been noticed yet
+		assertEquals(2, warehouse.openSessions());
+		warehouse.close();
+	}
+
+	@Test
+	public void testPagination() {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		List<DataObject> dataObjects = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			DataObject dataObject = makeCompanionDataObject();
+			dataObject.set("integer", i % 5);
+			dataObject.set("string", "item " + i);
+			dataObjects.add(dataObject);
+		}
+		warehouse.persist(dataObjects);
+
+		// Keyset pagination over a sort key with duplicates
+		Filter filter = new Filter(DataObject.class).orderByDescending("integer").limit(10);
+		List<DataObject> read = new ArrayList<>();
+		List<DataObject> page;
+		do {
+			page = new ArrayList<>();
+			for (DataObject dataObject : warehouse.query(read.isEmpty() ? filter : filter.after(read.get(read.size() - 1))))
+				page.add(dataObject);
+			assertTrue(page.size() <= 10);
+			read.addAll(page);
+		} while (page.size() == 10);
+
+		assertEquals(25, read.size());
+		assertEquals(25, read.stream().map(DataObject::getHibernateInternalId).distinct().count());
+		for (int i = 1; i < read.size(); i++)
+			assertTrue(read.get(i - 1).<Integer> get("integer") >= read.get(i).<Integer> get("integer"));
+
+		// Limit and offset, combined with a criterion
+		List<String> strings = new ArrayList<>();
+		for (DataObject dataObject : warehouse.query(new Filter(DataObject.class).eq("integer", 3), new Filter(DataObject.class).orderBy("string").offset(1).limit(2)))
+			strings.add(dataObject.get("string"));
+		assertEquals(Arrays.asList("item 18", "item 23"), strings);
+		assertEquals(new Long(5), warehouse.count(new Filter(DataObject.class).eq("integer", 3), new Filter(DataObject.class).limit(2)));
+
+		// Settings and conditions chained on one filter, in any order
+		strings.clear();
+		for (DataObject dataObject : warehouse.query(new Filter(DataObject.class).orderBy("string").limit(2).eq("integer", 3).offset(1)
+				.not(new Filter(DataObject.class).eq("string", "item 18"))))
+			strings.add(dataObject.get("string"));
+		assertEquals(Arrays.asList("item 23", "item 3"), strings);
+
+		warehouse.close();
+	}
+
+	@Test
+	public void testProjection() {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		warehouse.persist(makeCompanionDataObject(), makeCompanionDataObject());
+
+		int count = 0;
+		for (DataObject dataObject : warehouse.query(new Filter(DataObject.class).select("string", "stringList").orderBy("string"))) {
+			count++;
+			assertEquals(COMPANION_STRING, dataObject.<String> get("string"));
+			assertEquals(Arrays.asList("Hello", "World"), dataObject.get("stringList"));
+			assertFalse(dataObject.containsKey("float"));
+			assertTrue(dataObject.getHibernateInternalId() != null);
+			assertTrue(dataObject.isReadOnly());
+
+			try {
+				dataObject.set("string", "changed");
+				fail("Read-only views cannot be changed");
+			} catch (UnsupportedOperationException e) {
+			}
+			try {
+				warehouse.persist(dataObject);
+				fail("Read-only views cannot be stored");
+			} catch (RuntimeException e) {
+			}
+		}
+		assertEquals(2, count);
+
+		// Whole objects are untouched
+		for (DataObject dataObject : warehouse.all(DataObject.class))
+			assertEquals(new Float(1F), dataObject.<Float> get("float"));
+		warehouse.close();
+	}
+
+	@Test
+	public void testAggregation() {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		List<DataObject> dataObjects = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			DataObject dataObject = makeCompanionDataObject();
+			dataObject.set("client", i % 2 == 0 ? "Staedel" : "ULB");
+			dataObject.set("integer", i);
+			dataObject.set("float", i / 2F);
+			dataObjects.add(dataObject);
+		}
+		warehouse.persist(dataObjects);
+
+		List<Map<String, Object>> rows = warehouse.aggregate(new Aggregation(DataObject.class).groupBy("client").count().countDistinct("string").min("integer")
+				.max("integer").sum("integer").avg("float"));
+		assertEquals(2, rows.size());
+
+		Map<String, Object> staedel = rows.get(0);
+		assertEquals("Staedel", staedel.get("client"));
+		assertEquals(5L, ((Number) staedel.get(Aggregation.COUNT)).longValue());
+		assertEquals(1L, ((Number) staedel.get("countDistinct(string)")).longValue());
+		assertEquals(0, ((Number) staedel.get("min(integer)")).intValue());
+		assertEquals(8, ((Number) staedel.get("max(integer)")).intValue());
+		assertEquals(20L, ((Number) staedel.get("sum(integer)")).longValue());
+		assertEquals(2D, ((Number) staedel.get("avg(float)")).doubleValue(), 0.001);
+		assertEquals("ULB", rows.get(1).get("client"));
+
+		// Without groups, with a filter
+		rows = warehouse.aggregate(new Aggregation(DataObject.class).count().sum("float"), new Filter(DataObject.class).eq("client", "ULB"));
+		assertEquals(1, rows.size());
+		assertEquals(5L, ((Number) rows.get(0).get(Aggregation.COUNT)).longValue());
+		assertEquals(12.5D, ((Number) rows.get(0).get("sum(float)")).doubleValue(), 0.001);
+		warehouse.close();
+	}
+
+	@Test
+	public void testFilterAlgebra() {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		List<DataObject> dataObjects = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			DataObject dataObject = makeCompanionDataObject();
+			if (i < 6)
+				dataObject.set("client", i % 2 == 0 ? "Staedel" : "ULB");
+			dataObject.set("integer", i);
+			dataObject.set("float", i / 2F);
+			dataObjects.add(dataObject);
+		}
+		warehouse.persist(dataObjects);
+
+		Filter filter = new Filter(DataObject.class);
+		// Values are converted to the datatypes of the schema
+		assertEquals(new Long(1), warehouse.count(filter.eq("integer", "3")));
+		assertEquals(new Long(1), warehouse.count(filter.eq("float", 2)));
+		assertEquals(new Long(3), warehouse.count(filter.in("integer", Arrays.asList(1, "2", 3L, 42))));
+		assertEquals(new Long(4), warehouse.count(filter.between("integer", "2", 5)));
+		assertEquals(new Long(3), warehouse.count(filter.gt("float", "3.0")));
+		assertEquals(new Long(4), warehouse.count(filter.ge("float", 3)));
+		assertEquals(new Long(2), warehouse.count(filter.lt("integer", 2)));
+		assertEquals(new Long(3), warehouse.count(filter.le("integer", 2.0)));
+
+		assertEquals(new Long(4), warehouse.count(filter.isNull("client")));
+		assertEquals(new Long(6), warehouse.count(filter.not(filter.isNull("client"))));
+		assertEquals(new Long(2), warehouse.count(filter.and(filter.eq("client", "Staedel"), filter.lt("integer", 4))));
+		// Comparisons with unset attributes are neither true nor false, so "not" excludes them too
+		assertEquals(new Long(4), warehouse.count(filter.not(filter.and(filter.eq("client", "ULB"), filter.or(filter.eq("integer", 1), filter.ge("integer", 4))))));
+		assertEquals(new Long(5), warehouse.count(filter.or(filter.isNull("client"), filter.and(filter.not(filter.in("integer", Arrays.asList(0, 2))), filter.eq("client", "Staedel")))));
+
+		// Filters are combined by "and" when passed to the Warehouse, too
+		assertEquals(new Long(2), warehouse.count(filter.eq("client", "Staedel"), filter.lt("integer", 4)));
+
+		// Values are not truncated or guessed
+		for (Runnable lossy : Arrays.<Runnable> asList(() -> filter.eq("integer", 2.5), () -> filter.lt("integer", "2.5"),
+				() -> filter.in("integer", Arrays.asList(1, 3000000000L)), () -> filter.eq("boolean", "yes"), () -> filter.gt("float", 1e300))) {
+			try {
+				lossy.run();
+				fail("Lossy conversion");
+			} catch (IllegalArgumentException e) {
+			}
+		}
+		boolean combined = true;
+		try {
+			filter.not(new Filter(DataObject.class));
+		} catch (AssertionError e) {
+			combined = false;
+		}
+		assertFalse("Filters without a condition cannot be combined", combined);
+		warehouse.close();
+	}
+
+	@Test
+	public void testFullTextSearch() {
+		Warehouse warehouse = new Warehouse(true, DataObject.class);
+		String[] strings = { "Linked open data", "Open data, data, data", "Closed shop", "Linked lists" };
+		List<DataObject> dataObjects = new ArrayList<>();
+		for (String string : strings) {
+			DataObject dataObject = makeCompanionDataObject();
+			dataObject.set("string", string);
+			dataObjects.add(dataObject);
+		}
+		warehouse.persist(dataObjects);
+
+		// Ranked by the number of matches
+		List<String> found = new ArrayList<>();
+		for (DataObject dataObject : warehouse.query(new Filter(DataObject.class).match("string", "data")))
+			found.add(dataObject.get("string"));
+		assertEquals(Arrays.asList("Open data, data, data", "Linked open data"), found);
+		assertEquals(new Long(2), warehouse.count(new Filter(DataObject.class).match("string", "linked")));
+		assertEquals(new Long(3), warehouse.count(new Filter(DataObject.class).match("string", "linked OR clos*")));
+
+		// Combined with other conditions, before and after
+		found.clear();
+		Filter data = new Filter(DataObject.class).match("string", "data");
+		for (DataObject dataObject : warehouse.query(data.or(data.eq("string", "Linked open data"), data.like("string", "Open"))))
+			found.add(dataObject.get("string"));
+		assertEquals(Arrays.asList("Open data, data, data", "Linked open data"), found);
+		assertEquals(new Long(1), warehouse.count(new Filter(DataObject.class).like("string", "Linked").match("string", "data")));
+		boolean nested = true;
+		try {
+			new Filter(DataObject.class).or(new Filter(DataObject.class).match("string", "data"));
+		} catch (AssertionError e) {
+			nested = false;
+		}
+		assertFalse("Ranked filters cannot be nested", nested);
+
+		// Updates, bulk inserts and deletes are indexed
+		DataObject closed = null;
+		for (DataObject dataObject : warehouse.query(new Filter(DataObject.class).match("string", "closed")))
+			closed = dataObject;
+		closed.set("string", "Open shop");
+		warehouse.update(closed);
+		assertEquals(new Long(0), warehouse.count(new Filter(DataObject.class).match("string", "closed")));
+		assertEquals(new Long(3), warehouse.count(new Filter(DataObject.class).match("string", "open")));
+
+		DataObject bulk = makeCompanionDataObject();
+		bulk.set("string", "Bulk data");
+		warehouse.bulkInsert(DataObject.class, Stream.of(bulk));
+		assertEquals(new Long(3), warehouse.count(new Filter(DataObject.class).match("string", "data")));
+
+		warehouse.synchronize(DataObject.class, Stream.of(bulk), dataObject -> "bulk");
+		warehouse.synchronize(DataObject.class, Stream.empty(), dataObject -> "bulk");
+		assertEquals(new Long(3), warehouse.count(new Filter(DataObject.class).match("string", "data")));
+		warehouse.close();
+
+		// The index and its triggers are re-used
+		warehouse = new Warehouse(DataObject.class);
+		assertEquals(new Long(3), warehouse.count(new Filter(DataObject.class).match("string", "data")));
+		warehouse.close();
+	}
 }